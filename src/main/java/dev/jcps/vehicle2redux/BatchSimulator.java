@@ -0,0 +1,205 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The {@code BatchSimulator} class runs many independent {@link Simulation}s at once, for tuning levels and checking
+ * that changes to the physics do not change the outcome of known runs.
+ * <p>
+ * Every run gets its own vehicle and its own {@link GameParams}, so variants of a level can be compared side by side.
+ * Runs whose terrain image is the same share one read-only {@link Terrain}, which is loaded only once per batch.
+ * The runs are split across the threads of a {@link ForkJoinPool}; as they share nothing but the terrain, the
+ * throughput grows with the number of cores.
+ * </p>
+ *
+ * @see Simulation
+ * @see InputScript
+ * @since 1.0
+ */
+public class BatchSimulator {
+    /**
+     * The pool the runs are executed in.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a {@code BatchSimulator} that uses the common fork-join pool, and with it every core.
+     */
+    public BatchSimulator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a {@code BatchSimulator} that executes its runs in the given pool.
+     *
+     * @param pool The pool to use.
+     */
+    public BatchSimulator(@NotNull ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Simulates all runs and waits for them to finish.
+     *
+     * @param runs The runs to simulate.
+     * @return The result of each run, in the same order as {@code runs}.
+     * @throws IOException If the terrain of one of the runs cannot be loaded.
+     */
+    public @NotNull List<Result> simulate(@NotNull List<Run> runs) throws IOException {
+        // Load each distinct terrain once, up front, so that loading errors reach the caller
+        Map<String, Terrain> terrains = new HashMap<>();
+        Terrain[] terrainOfRun = new Terrain[runs.size()];
+        for (int i = 0; i < runs.size(); i++) {
+            GameParams params = runs.get(i).params;
+            String image = params.paramMap.get(GameParams.BILD);
+            Terrain terrain = terrains.get(image);
+            if (terrain == null) {
+                terrain = TerrainLoader.load(params);
+                terrains.put(image, terrain);
+            }
+            terrainOfRun[i] = terrain;
+        }
+
+        Result[] results = new Result[runs.size()];
+        pool.invoke(new RunRange(runs, terrainOfRun, results, 0, runs.size()));
+        return List.of(results);
+    }
+
+    /**
+     * Simulates a single run to the end on the calling thread.
+     *
+     * @param run     The run to simulate.
+     * @param terrain The terrain of the run's level.
+     * @return The result of the run.
+     */
+    static @NotNull Result simulate(@NotNull Run run, @NotNull Terrain terrain) {
+        Simulation sim = new Simulation(run.params, terrain);
+        InputFrame input = new InputFrame();
+        for (long step = 0; step < run.maxSteps && !sim.isFinished(); step++) {
+            input.clearEvents();
+            run.script.fill(step, input);
+            sim.apply(input);
+            sim.step();
+        }
+        PhysicsState body = sim.getVehicle().getBody();
+        int corpus = sim.getVehicle().getCorpusNode();
+        return new Result(sim.isFinished(), sim.getStepCount(), sim.getElapsedMillis(),
+                body.x[corpus], body.y[corpus]);
+    }
+
+    /**
+     * Runs the simulator from the command line, for testing.
+     * <p>
+     * Usage: {@code BatchSimulator [--simd] <level.map> [runs] [steps]}. Every run holds the throttle to the right for a
+     * different number of steps; the results and the throughput are logged.
+     * </p>
+     *
+     * @param args The command line arguments.
+     * @throws IOException If the level's terrain cannot be loaded.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].startsWith("--simd")) {
+            SpringKernels.setVectorRequested(true);
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length == 0) {
+            V2RApp.logger.error("Usage: BatchSimulator [--simd] <level.map> [runs] [steps]");
+            return;
+        }
+        LevelMap map = new LevelMap(args[0]);
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 3000;
+
+        List<Run> runs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final long throttleSteps = (long) steps * (i + 1) / count;
+            runs.add(new Run(new GameParams(map.lp.paramMap),
+                    (step, frame) -> frame.right = step < throttleSteps, steps));
+        }
+
+        BatchSimulator batch = new BatchSimulator();
+        long start = System.nanoTime();
+        List<Result> results = batch.simulate(runs);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int finished = 0;
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            if (r.finished()) finished++;
+            if (V2RApp.debug) V2RApp.logger.debug("Run {}: {}", i, r);
+        }
+        V2RApp.logger.info("{} runs, {} finished, {} threads, {} s, {} steps/s", count, finished,
+                batch.pool.getParallelism(), String.format("%.2f", seconds),
+                String.format("%.0f", count * (double) steps / seconds));
+    }
+
+    /**
+     * Describes one run of a batch: the level parameters, the input and how many steps to simulate at most.
+     *
+     * @param params   The level parameters of this run. Must not be shared with a run that modifies them.
+     * @param script   The input to apply at each step.
+     * @param maxSteps The number of steps after which the run stops if the level is not finished.
+     */
+    public record Run(@NotNull GameParams params, @NotNull InputScript script, long maxSteps) {
+    }
+
+    /**
+     * The outcome of one run.
+     *
+     * @param finished      Whether the vehicle finished the level.
+     * @param steps         The number of steps simulated.
+     * @param elapsedMillis The simulated time of the run, in milliseconds.
+     * @param x             The final x-coordinate of the vehicle's corpus.
+     * @param y             The final y-coordinate of the vehicle's corpus.
+     */
+    public record Result(boolean finished, long steps, long elapsedMillis, double x, double y) {
+    }
+
+    /**
+     * Simulates a range of runs, splitting it in half until a single run remains.
+     */
+    private static class RunRange extends RecursiveAction {
+        private final transient List<Run> runs;
+        private final transient Terrain[] terrains;
+        private final transient Result[] results;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructs a task for the runs from {@code from} (inclusive) to {@code to} (exclusive).
+         *
+         * @param runs     All runs of the batch.
+         * @param terrains The terrain of each run.
+         * @param results  The array receiving the result of each run.
+         * @param from     The first run of the range.
+         * @param to       The end of the range.
+         */
+        RunRange(List<Run> runs, Terrain[] terrains, Result[] results, int from, int to) {
+            this.runs = runs;
+            this.terrains = terrains;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = simulate(runs.get(from), terrains[from]);
+            } else if (to > from) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RunRange(runs, terrains, results, from, mid),
+                        new RunRange(runs, terrains, results, mid, to));
+            }
+        }
+    }
+}
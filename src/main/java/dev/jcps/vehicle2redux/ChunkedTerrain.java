@@ -0,0 +1,349 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The {@code ChunkedTerrain} class holds the terrain of a level too large to keep in memory as a whole.
+ * <p>
+ * The level is split into square chunks of {@value #CHUNK_SIZE} pixels. A chunk is decoded from its region of the
+ * terrain data image the first time it is needed, either because the physics looks at one of its pixels or because
+ * {@link #prefetch(int, int, int, int)} asked for it ahead of time around the vehicle or the viewport. When more
+ * chunks are loaded than the memory budget allows, the chunk that has gone unused for the longest is dropped; it
+ * is decoded again if it is needed later.
+ * </p>
+ * <p>
+ * <i>Note: Prefetched chunks are decoded on a background thread. A pixel in a chunk that has not arrived yet is
+ * decoded on the spot, so lookups never see missing terrain, they only get slower.</i>
+ * </p>
+ *
+ * @see TerrainLoader
+ * @since 1.0
+ */
+public class ChunkedTerrain extends Terrain {
+    /**
+     * The width and height of a chunk in pixels.
+     */
+    static final int CHUNK_SIZE = 256;
+    /**
+     * The memory taken by one chunk in bytes.
+     */
+    static final int CHUNK_BYTES = CHUNK_SIZE * CHUNK_SIZE / 2;
+    private static final int CHUNK_SHIFT = 8;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /**
+     * The smallest number of chunks kept, whatever the budget: enough for the vehicle and a screen around it.
+     */
+    private static final int MIN_CHUNKS = 16;
+    /**
+     * Decodes prefetched chunks of every chunked terrain, one at a time, in the background.
+     */
+    private static final ExecutorService PREFETCHER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "terrain-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * The terrain data image.
+     */
+    private final File image;
+    /**
+     * The number of chunks across and down the level.
+     */
+    private final int columns;
+    private final int rows;
+    /**
+     * The loaded chunks, row by row; {@code null} where a chunk is not loaded.
+     */
+    private final AtomicReferenceArray<Chunk> chunks;
+    /**
+     * The largest number of chunks kept loaded.
+     */
+    private final int maxChunks;
+    /**
+     * Counts calls to {@link #prefetch(int, int, int, int)}; chunks remember the count when they were last used.
+     */
+    private final AtomicLong clock = new AtomicLong();
+    /**
+     * The chunks waiting to be decoded in the background.
+     */
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+    /**
+     * The number of chunks loaded. This and the statistics are guarded by {@code this}.
+     */
+    private int loaded = 0;
+    private long decodes = 0;
+    private long evictions = 0;
+
+    /**
+     * Constructs a {@code ChunkedTerrain} reading its chunks from the given image. Nothing is decoded yet.
+     *
+     * @param image       The terrain data image.
+     * @param width       The width of the terrain in pixels.
+     * @param height      The height of the terrain in pixels.
+     * @param budgetBytes The memory the loaded chunks may take.
+     * @throws IOException If the image cannot be opened or is not in a format that can be read.
+     */
+    public ChunkedTerrain(@NotNull File image, int width, int height, long budgetBytes) throws IOException {
+        super(width, height);
+        this.image = image;
+        this.columns = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.rows = (height + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.chunks = new AtomicReferenceArray<>(columns * rows);
+        this.maxChunks = (int) Math.max(MIN_CHUNKS, Math.min(Integer.MAX_VALUE, budgetBytes / CHUNK_BYTES));
+        // Fail now rather than in the middle of the game if the image cannot be read
+        try (ImageInputStream in = ImageIO.createImageInputStream(image)) {
+            if (in == null || !ImageIO.getImageReaders(in).hasNext()) {
+                throw new IOException("Unsupported terrain image: " + image);
+            }
+        }
+    }
+
+    @Override
+    int code(int x, int y) {
+        int index = (y >> CHUNK_SHIFT) * columns + (x >> CHUNK_SHIFT);
+        Chunk chunk = chunks.get(index);
+        if (chunk == null) {
+            chunk = load(index);
+        }
+        long now = clock.get();
+        if (chunk.lastUsed != now) {
+            chunk.lastUsed = now;
+        }
+        int lx = x & CHUNK_MASK;
+        int ly = y & CHUNK_MASK;
+        return (chunk.cells[ly * (CHUNK_SIZE / 2) + (lx >> 1)] >> ((lx & 1) << 2)) & 0xF;
+    }
+
+    @Override
+    public void prefetch(int x, int y, int width, int height) {
+        long now = clock.incrementAndGet();
+        int cx0 = Math.max(0, x >> CHUNK_SHIFT);
+        int cy0 = Math.max(0, y >> CHUNK_SHIFT);
+        int cx1 = Math.min(columns - 1, (x + width - 1) >> CHUNK_SHIFT);
+        int cy1 = Math.min(rows - 1, (y + height - 1) >> CHUNK_SHIFT);
+        for (int cy = cy0; cy <= cy1; cy++) {
+            int runStart = -1;
+            for (int cx = cx0; cx <= cx1 + 1; cx++) {
+                int index = cy * columns + cx;
+                Chunk chunk = cx <= cx1 ? chunks.get(index) : null;
+                if (chunk != null) {
+                    chunk.lastUsed = now;
+                }
+                boolean missing = cx <= cx1 && chunk == null && pending.add(index);
+                if (missing && runStart < 0) {
+                    runStart = cx;
+                } else if (!missing && runStart >= 0) {
+                    // Decoding neighbouring chunks in one read costs little more than decoding one
+                    submit(cy, runStart, cx - 1);
+                    runStart = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes a run of chunks of one chunk row in the background.
+     *
+     * @param cy  The chunk row.
+     * @param cx0 The first chunk column.
+     * @param cx1 The last chunk column.
+     */
+    private void submit(int cy, int cx0, int cx1) {
+        PREFETCHER.execute(() -> {
+            try {
+                load(cy, cx0, cx1);
+            } catch (UncheckedIOException e) {
+                V2RApp.logger.error("Could not prefetch terrain chunks {}-{},{}", cx0, cx1, cy, e);
+            } finally {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    pending.remove(cy * columns + cx);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the memory the loaded chunks may take at most.
+     *
+     * @return The size in bytes.
+     */
+    @Override
+    public long getMemoryBytes() {
+        return (long) maxChunks * CHUNK_BYTES;
+    }
+
+    /**
+     * Returns the number of chunks currently loaded.
+     *
+     * @return The number of loaded chunks.
+     */
+    public synchronized int getLoadedChunks() {
+        return loaded;
+    }
+
+    /**
+     * Returns how often a chunk has been decoded and how often one has been dropped, for tuning the budget.
+     *
+     * @return {@code {decodes, evictions}}.
+     */
+    public synchronized long[] getStatistics() {
+        return new long[]{decodes, evictions};
+    }
+
+    /**
+     * Returns a chunk, decoding it if it is not loaded yet.
+     *
+     * @param index The chunk index.
+     * @return The chunk.
+     * @throws UncheckedIOException If the image cannot be read.
+     */
+    private @NotNull Chunk load(int index) {
+        int cx = index % columns;
+        int cy = index / columns;
+        // Use the chunk handed back under the lock: it may be dropped again before it could be looked up
+        return load(cy, cx, cx);
+    }
+
+    /**
+     * Decodes a run of chunks of one chunk row and adds the ones not loaded in the meantime, dropping the least
+     * recently used chunks if the budget is exceeded. The image is read without holding the lock, so lookups in
+     * loaded chunks and other decodes are not held up.
+     *
+     * @param cy  The chunk row.
+     * @param cx0 The first chunk column.
+     * @param cx1 The last chunk column.
+     * @return The chunk of the first column, as added or as found already loaded.
+     * @throws UncheckedIOException If the image cannot be read.
+     */
+    private @NotNull Chunk load(int cy, int cx0, int cx1) {
+        byte[][] decoded = decode(cx0, cx1, cy);
+        synchronized (this) {
+            long now = clock.get();
+            Chunk first = null;
+            for (int cx = cx0; cx <= cx1; cx++) {
+                int index = cy * columns + cx;
+                Chunk chunk = chunks.get(index);
+                if (chunk == null) {
+                    chunk = new Chunk(decoded[cx - cx0], now);
+                    chunks.set(index, chunk);
+                    decodes++;
+                    if (++loaded > maxChunks) {
+                        evict(index);
+                    }
+                }
+                if (cx == cx0) {
+                    first = chunk;
+                }
+            }
+            return first;
+        }
+    }
+
+    /**
+     * Drops the least recently used chunk.
+     *
+     * @param keep The chunk that must stay, the one just loaded.
+     */
+    private void evict(int keep) {
+        int oldest = -1;
+        long oldestUse = Long.MAX_VALUE;
+        for (int i = 0; i < chunks.length(); i++) {
+            Chunk chunk = chunks.get(i);
+            if (chunk != null && i != keep && chunk.lastUsed < oldestUse) {
+                oldest = i;
+                oldestUse = chunk.lastUsed;
+            }
+        }
+        if (oldest >= 0) {
+            chunks.set(oldest, null);
+            loaded--;
+            evictions++;
+        }
+    }
+
+    /**
+     * Reads the region of a run of chunks from the terrain data image and classifies its pixels.
+     *
+     * @param cx0 The first chunk column.
+     * @param cx1 The last chunk column.
+     * @param cy  The chunk row.
+     * @return The packed codes of each chunk of the run; pixels outside the image are 'F'.
+     * @throws UncheckedIOException If the image cannot be read.
+     */
+    private byte @NotNull [][] decode(int cx0, int cx1, int cy) {
+        byte[][] cells = new byte[cx1 - cx0 + 1][CHUNK_BYTES];
+        try (ImageInputStream in = ImageIO.createImageInputStream(image)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported terrain image: " + image);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int x0 = cx0 << CHUNK_SHIFT;
+                int y0 = cy << CHUNK_SHIFT;
+                int w = Math.min((cx1 - cx0 + 1) * CHUNK_SIZE, Math.min(getWidth(), reader.getWidth(0)) - x0);
+                int h = Math.min(CHUNK_SIZE, Math.min(getHeight(), reader.getHeight(0)) - y0);
+                if (w <= 0 || h <= 0) {
+                    return cells;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle(x0, y0, w, h));
+                BufferedImage region = reader.read(0, param);
+                int[] rgb = region.getRGB(0, 0, w, h, null, 0, w);
+                for (int y = 0; y < h; y++) {
+                    for (int x = 0; x < w; x++) {
+                        int pixel = rgb[y * w + x];
+                        int code = codeOf(TerrainLoader.mapPixelToChar((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF,
+                                pixel & 0xFF));
+                        int lx = x & CHUNK_MASK;
+                        cells[x >> CHUNK_SHIFT][y * (CHUNK_SIZE / 2) + (lx >> 1)] |= (byte) (code << ((lx & 1) << 2));
+                    }
+                }
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read terrain chunks " + cx0 + "-" + cx1 + "," + cy + " of "
+                    + image, e);
+        }
+        return cells;
+    }
+
+    /**
+     * One decoded chunk.
+     */
+    private static final class Chunk {
+        /**
+         * The packed codes, two pixels per byte, {@code CHUNK_SIZE / 2} bytes per row.
+         */
+        final byte[] cells;
+        /**
+         * The clock value when the chunk was last used. Written without locking; a late update only makes the
+         * chunk look a little older.
+         */
+        long lastUsed;
+
+        Chunk(byte[] cells, long lastUsed) {
+            this.cells = cells;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
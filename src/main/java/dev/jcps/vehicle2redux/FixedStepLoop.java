@@ -0,0 +1,106 @@
+package dev.jcps.vehicle2redux;
+
+/**
+ * The {@code FixedStepLoop} class converts elapsed wall-clock time into a whole number of fixed simulation steps.
+ * <p>
+ * Each call to {@link #advance(long)} adds the time since the previous call to an accumulator and returns how many
+ * steps of {@code stepNanos} fit into it. The remainder is carried over to the next frame, so the simulation runs at
+ * the same speed no matter how often, or how late, frames are produced.
+ * </p>
+ * <p>
+ * <i>Note: If a frame falls so far behind that more than {@code maxStepsPerFrame} steps are due, the extra time is
+ * dropped. The game then slows down briefly instead of spending ever longer frames catching up.</i>
+ * </p>
+ *
+ * @since 1.0
+ */
+public class FixedStepLoop {
+    /**
+     * The wall-clock duration of one simulation step, in nanoseconds.
+     */
+    private final long stepNanos;
+    /**
+     * The maximum number of steps returned by a single call to {@link #advance(long)}.
+     */
+    private final int maxStepsPerFrame;
+    /**
+     * Wall-clock time that has elapsed but not yet been simulated, in nanoseconds.
+     */
+    private long accumulator;
+    /**
+     * The timestamp passed to the previous call to {@link #advance(long)} or {@link #reset(long)}.
+     */
+    private long lastTime;
+    /**
+     * The total number of steps dropped because frames fell too far behind.
+     */
+    private long droppedSteps;
+
+    /**
+     * Constructs a {@code FixedStepLoop} with the given step duration.
+     *
+     * @param stepMillis       The wall-clock duration of one simulation step, in milliseconds.
+     * @param maxStepsPerFrame The maximum number of steps to run in a single frame.
+     */
+    public FixedStepLoop(int stepMillis, int maxStepsPerFrame) {
+        this.stepNanos = Math.max(1, stepMillis) * 1_000_000L;
+        this.maxStepsPerFrame = Math.max(1, maxStepsPerFrame);
+    }
+
+    /**
+     * Empties the accumulator and restarts timing from the given timestamp.
+     * Call this after a pause, such as loading a level, so the pause is not simulated.
+     *
+     * @param now The current time from {@link System#nanoTime()}.
+     */
+    public void reset(long now) {
+        this.lastTime = now;
+        this.accumulator = 0;
+    }
+
+    /**
+     * Adds the time elapsed since the previous call to the accumulator and removes the steps that are now due.
+     *
+     * @param now The current time from {@link System#nanoTime()}.
+     * @return The number of fixed steps to simulate in this frame.
+     */
+    public int advance(long now) {
+        accumulator += Math.max(0, now - lastTime);
+        lastTime = now;
+        long due = accumulator / stepNanos;
+        if (due > maxStepsPerFrame) {
+            droppedSteps += due - maxStepsPerFrame;
+            accumulator = 0;
+            return maxStepsPerFrame;
+        }
+        accumulator -= due * stepNanos;
+        return (int) due;
+    }
+
+    /**
+     * Returns how far the accumulator has progressed towards the next step.
+     *
+     * @return A value between 0 (inclusive) and 1 (exclusive).
+     */
+    public double alpha() {
+        return (double) accumulator / stepNanos;
+    }
+
+    /**
+     * Returns the wall-clock duration of one simulation step.
+     *
+     * @return The step duration in nanoseconds.
+     */
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    /**
+     * Returns the total number of steps dropped because frames fell too far behind.
+     *
+     * @return The number of dropped steps.
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+}
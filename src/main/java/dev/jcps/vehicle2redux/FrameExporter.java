@@ -0,0 +1,241 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@code FrameExporter} class replays a run of a level without a window and saves its frames as a sequence of
+ * PNG images, for trailers and bug reports.
+ * <p>
+ * The run is stepped as fast as the simulation allows, not in real time, and a frame is drawn into an offscreen
+ * {@link BufferedImage} whenever the level time has moved on by one frame of the output. Encoding a PNG takes far
+ * longer than drawing the frame, so the frames are handed to a pool of encoder threads, one per core by default.
+ * There is a fixed number of frame images: when all of them are waiting to be encoded, drawing waits for one to be
+ * written, so memory stays flat however long the run is.
+ * </p>
+ * <p>
+ * <i>Note: A run is a level and an {@link InputScript}, as for a {@link BatchSimulator}. Frames are drawn by the
+ * same {@link ScenePainter} as in the game, with the background, the vehicle, its turret and the HUD, but without
+ * the GitHub link and the zone messages.</i>
+ * </p>
+ *
+ * @see SimulationRunner
+ * @since 1.0
+ */
+public class FrameExporter {
+    /**
+     * The deflate level of the images, from 0 to 9. Low levels encode several times faster than the default for
+     * files that are only slightly larger.
+     */
+    static final int COMPRESSION_LEVEL = 1;
+    /**
+     * The number of encoder threads.
+     */
+    private final int threads;
+    /**
+     * The number of frame images, and so the most frames drawn but not yet written.
+     */
+    private final int frameBuffers;
+    /**
+     * The size of the frames.
+     */
+    private final int width;
+    private final int height;
+    /**
+     * The frames per second of the output.
+     */
+    private final int framesPerSecond;
+
+    /**
+     * Constructs a {@code FrameExporter} with one encoder thread per core.
+     *
+     * @param width           The width of the frames.
+     * @param height          The height of the frames.
+     * @param framesPerSecond The frames per second of level time.
+     */
+    public FrameExporter(int width, int height, int framesPerSecond) {
+        this(width, height, framesPerSecond, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a {@code FrameExporter}.
+     *
+     * @param width           The width of the frames.
+     * @param height          The height of the frames.
+     * @param framesPerSecond The frames per second of level time.
+     * @param threads         The number of encoder threads.
+     */
+    public FrameExporter(int width, int height, int framesPerSecond, int threads) {
+        this.width = width;
+        this.height = height;
+        this.framesPerSecond = Math.max(1, framesPerSecond);
+        this.threads = Math.max(1, threads);
+        this.frameBuffers = 2 * this.threads;
+    }
+
+    /**
+     * Replays a run and writes its frames as {@code frame_000000.png}, {@code frame_000001.png} and so on.
+     *
+     * @param map       The level.
+     * @param script    The input of the run.
+     * @param maxSteps  The number of steps after which the run stops if the level is not finished.
+     * @param directory The directory to write the frames to; it is created if needed.
+     * @return The number of frames written.
+     * @throws IOException If the level cannot be loaded or a frame cannot be written.
+     */
+    public int export(@NotNull LevelMap map, @NotNull InputScript script, long maxSteps, @NotNull Path directory)
+            throws IOException {
+        Files.createDirectories(directory);
+        LevelPreloader.Level level = LevelPreloader.load(map);
+        Simulation sim = level.sim();
+        PlayerVehicle vehicle = sim.getVehicle();
+        PhysicsState body = vehicle.getBody();
+        InputFrame input = new InputFrame();
+        SimulationRunner runner = new SimulationRunner(sim, input,
+                body.x[vehicle.getCorpusNode()] - (double) width / 2,
+                body.y[vehicle.getCorpusNode()] - (double) height / 2, width, height, 1);
+        ScenePainter painter = new ScenePainter(level.background(), width, height,
+                sim.getTerrain().getWidth(), sim.getTerrain().getHeight(), null);
+
+        BlockingQueue<BufferedImage> free = new ArrayBlockingQueue<>(frameBuffers);
+        for (int i = 0; i < frameBuffers; i++) {
+            free.add(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+        }
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        ExecutorService encoders = newEncoderPool();
+        final long stepNanos = runner.getStepNanos();
+        int frames = 0;
+        try {
+            for (long step = 0; step < maxSteps && !sim.isFinished() && failure.get() == null; step++) {
+                // The runner takes the input and clears its events, as it does for the key listeners
+                script.fill(step, input);
+                runner.step(step * stepNanos);
+
+                // Draw every frame whose time the level has reached
+                VehicleSnapshot snapshot = runner.getSnapshot();
+                while (frames * 1000L / framesPerSecond <= snapshot.elapsedMillis) {
+                    BufferedImage image = free.take();
+                    Graphics2D g = image.createGraphics();
+                    try {
+                        painter.draw(g, snapshot, snapshot.x, snapshot.y, snapshot.turretAngle,
+                                painter.viewportX(snapshot.cameraX), painter.viewportY(snapshot.cameraY), null);
+                    } finally {
+                        g.dispose();
+                    }
+                    Path file = directory.resolve(String.format("frame_%06d.png", frames));
+                    encoders.execute(() -> {
+                        try {
+                            write(image, file);
+                        } catch (IOException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            free.add(image);
+                        }
+                    });
+                    frames++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting frames", e);
+        } finally {
+            encoders.shutdown();
+            try {
+                encoders.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return frames;
+    }
+
+    /**
+     * Makes the encoder threads. Their queue never holds more than the frame images, so it cannot fill up.
+     *
+     * @return The pool.
+     */
+    private @NotNull ExecutorService newEncoderPool() {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(frameBuffers), r -> {
+            Thread thread = new Thread(r, "frame-encoder-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Encodes an image as a PNG file with {@link #COMPRESSION_LEVEL}.
+     *
+     * @param image The image.
+     * @param file  The file.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(@NotNull BufferedImage image, @NotNull Path file) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        // Closing the image stream does not close the stream it wraps, so both are closed here
+        try (OutputStream stream = Files.newOutputStream(file);
+             ImageOutputStream out = ImageIO.createImageOutputStream(stream)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(1.0f - COMPRESSION_LEVEL / 9.0f);
+            }
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Exports a run from the command line, for testing.
+     * <p>
+     * Usage: {@code FrameExporter <level.map> <directory> [seconds] [fps] [width] [height]}. The vehicle holds the
+     * throttle to the right for the whole run; the number of frames and the time taken are logged.
+     * </p>
+     *
+     * @param args The command line arguments.
+     * @throws IOException If the level cannot be loaded or a frame cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            V2RApp.logger.error("Usage: FrameExporter <level.map> <directory> [seconds] [fps] [width] [height]");
+            return;
+        }
+        LevelMap map = new LevelMap(args[0]);
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 120;
+        int fps = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+        int width = args.length > 4 ? Integer.parseInt(args[4]) : 640;
+        int height = args.length > 5 ? Integer.parseInt(args[5]) : 480;
+
+        FrameExporter exporter = new FrameExporter(width, height, fps);
+        long steps = seconds * 1000L / Math.max(1, map.lp.getSettings().delay);
+        long start = System.nanoTime();
+        int frames = exporter.export(map, (step, frame) -> frame.right = true, steps, Path.of(args[1]));
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        V2RApp.logger.info("{} frames of {}x{} written by {} encoders in {} s, {} frames/s", frames, width, height,
+                exporter.threads, String.format("%.2f", elapsed), String.format("%.0f", frames / elapsed));
+    }
+}
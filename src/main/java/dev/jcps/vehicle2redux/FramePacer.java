@@ -0,0 +1,321 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code FramePacer} class runs a task on the event dispatch thread at a steady frame rate, in place of a
+ * {@link Timer}.
+ * <p>
+ * A Swing timer only has millisecond resolution, its period drifts when it is late, and it quietly merges late
+ * events. The pacer keeps its own thread that works out every deadline from {@link System#nanoTime()} and the
+ * previous deadline, so that lateness never adds up. It sleeps until {@value #SPIN_NANOS} nanoseconds before a
+ * deadline and spins for the rest, because sleeping alone often wakes a millisecond or more too late. Spinning keeps
+ * a core busy for that part of every frame, so the window can be made shorter, or turned off, with
+ * {@link #setSpinNanos(long)}; a stopped pacer neither sleeps nor spins, it waits to be started again.
+ * </p>
+ * <p>
+ * The pacer measures how well it keeps time. A <i>late</i> frame started more than {@value #LATE_NANOS}
+ * nanoseconds after its deadline. An <i>early</i> wakeup is a sleep that ended before it should have; the pacer then
+ * sleeps again. A <i>missed</i> frame is one that was skipped, because the pacer fell a whole frame behind or the
+ * previous frame was still waiting on the event dispatch thread. With {@code --debug} the figures are logged every
+ * {@value #REPORT_SECONDS} seconds; {@link #getStatistics()} returns them since the pacer was made.
+ * </p>
+ * <p>
+ * <i>Note: Like a stopped timer, a stopped pacer does not run a frame that was already on its way to the event
+ * dispatch thread.</i>
+ * </p>
+ *
+ * @see V2RApp
+ * @since 1.0
+ */
+public class FramePacer {
+    /**
+     * How long before a deadline sleeping gives way to spinning by default, in nanoseconds.
+     */
+    static final long SPIN_NANOS = 1_500_000L;
+    /**
+     * How long after its deadline a frame counts as late, in nanoseconds.
+     */
+    static final long LATE_NANOS = 1_000_000L;
+    /**
+     * How often the figures are logged in debug mode, in seconds.
+     */
+    static final int REPORT_SECONDS = 10;
+    /**
+     * The task run for each frame.
+     */
+    private final Runnable frame;
+    /**
+     * The time between two frames, in nanoseconds.
+     */
+    private volatile long periodNanos;
+    /**
+     * How long before a deadline sleeping gives way to spinning, in nanoseconds.
+     */
+    private volatile long spinNanos = SPIN_NANOS;
+    /**
+     * Whether frames are being run.
+     */
+    private volatile boolean running = false;
+    /**
+     * Set while a frame is waiting for or running on the event dispatch thread.
+     */
+    private final AtomicBoolean pending = new AtomicBoolean();
+    /**
+     * The thread, made by the first {@link #start()}.
+     */
+    private Thread thread;
+    // Statistics, total and since the last report
+    private long frames;
+    private long missed;
+    private long early;
+    private long late;
+    private long totalLateness;
+    private long maxLateness;
+    private long[] reported = new long[4];
+    private long reportedLateness;
+    private long windowMaxLateness;
+    private long nextReport;
+
+    /**
+     * Constructs a stopped {@code FramePacer}.
+     *
+     * @param framesPerSecond The target frame rate.
+     * @param frame           The task to run on the event dispatch thread for each frame.
+     */
+    public FramePacer(int framesPerSecond, @NotNull Runnable frame) {
+        this.frame = frame;
+        setFrameRate(framesPerSecond);
+    }
+
+    /**
+     * Sets the target frame rate. It takes effect from the next frame.
+     *
+     * @param framesPerSecond The frames per second, at least 1.
+     */
+    public void setFrameRate(int framesPerSecond) {
+        this.periodNanos = 1_000_000_000L / Math.max(1, framesPerSecond);
+    }
+
+    /**
+     * Sets how long before each deadline the pacer stops sleeping and spins. Longer windows keep time better but
+     * keep a core busy for longer; 0 only sleeps. It takes effect from the next frame.
+     *
+     * @param spinNanos The spin window in nanoseconds, at least 0.
+     */
+    public void setSpinNanos(long spinNanos) {
+        this.spinNanos = Math.max(0, spinNanos);
+    }
+
+    /**
+     * Starts running frames, the first one a frame from now.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        if (thread == null) {
+            thread = new Thread(this::loop, "frame-pacer");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Stops running frames. This does not wait, so it may be called from the frame task.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Tells whether frames are being run.
+     *
+     * @return {@code true} if the pacer is running.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the figures on how well the pacer kept time, since it was made.
+     *
+     * @return The frames run, the frames missed, the early wakeups, the late frames, the mean and the largest
+     * lateness of a frame in nanoseconds.
+     */
+    public synchronized long @NotNull [] getStatistics() {
+        return new long[]{frames, missed, early, late, frames == 0 ? 0 : totalLateness / frames, maxLateness};
+    }
+
+    /**
+     * The loop of the thread: waits while stopped, otherwise waits for each deadline and hands the frame to the
+     * event dispatch thread.
+     */
+    private void loop() {
+        while (true) {
+            while (!running) {
+                LockSupport.park(this);
+            }
+            long deadline = System.nanoTime() + periodNanos;
+            nextReport = deadline + REPORT_SECONDS * 1_000_000_000L;
+            while (running) {
+                waitUntil(deadline);
+                if (!running) {
+                    break;
+                }
+                long now = System.nanoTime();
+                long lateness = now - deadline;
+                boolean posted = pending.compareAndSet(false, true);
+                if (posted) {
+                    SwingUtilities.invokeLater(this::runFrame);
+                }
+                // A whole frame late: skip the deadlines that have passed rather than rush those frames
+                long period = periodNanos;
+                long skipped = lateness >= period ? lateness / period : 0;
+                deadline += (skipped + 1) * period;
+                record(lateness, posted, skipped);
+                if (V2RApp.debug && now >= nextReport) {
+                    report();
+                    nextReport = now + REPORT_SECONDS * 1_000_000_000L;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the frame task on the event dispatch thread, unless the pacer has been stopped meanwhile.
+     */
+    private void runFrame() {
+        pending.set(false);
+        if (running) {
+            frame.run();
+        }
+    }
+
+    /**
+     * Sleeps until shortly before a deadline, then spins until it.
+     *
+     * @param deadline The deadline, from {@link System#nanoTime()}.
+     */
+    private void waitUntil(long deadline) {
+        final long sleepUntil = deadline - spinNanos;
+        boolean slept = false;
+        long now;
+        while ((now = System.nanoTime()) < sleepUntil && running) {
+            if (slept) {
+                // The previous sleep ended too soon; sleep again rather than spin for long
+                synchronized (this) {
+                    early++;
+                }
+            }
+            LockSupport.parkNanos(this, sleepUntil - now);
+            slept = true;
+        }
+        while (System.nanoTime() < deadline && running) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Counts a frame.
+     *
+     * @param lateness How long after its deadline the frame started, in nanoseconds.
+     * @param posted   {@code false} if the frame was dropped because the previous one had not run yet.
+     * @param skipped  The number of deadlines skipped after this frame.
+     */
+    private synchronized void record(long lateness, boolean posted, long skipped) {
+        frames++;
+        missed += skipped + (posted ? 0 : 1);
+        if (lateness > LATE_NANOS) {
+            late++;
+        }
+        totalLateness += lateness;
+        maxLateness = Math.max(maxLateness, lateness);
+        windowMaxLateness = Math.max(windowMaxLateness, lateness);
+    }
+
+    /**
+     * Logs the figures since the previous report.
+     */
+    private synchronized void report() {
+        long count = frames - reported[0];
+        if (count > 0) {
+            V2RApp.logger.debug("Frame pacing over {} frames: {} missed, {} early wakeups, {} late, "
+                            + "mean lateness {} us, largest {} us", count, missed - reported[1],
+                    early - reported[2], late - reported[3],
+                    (totalLateness - reportedLateness) / count / 1000, windowMaxLateness / 1000);
+        }
+        reported = new long[]{frames, missed, early, late};
+        reportedLateness = totalLateness;
+        windowMaxLateness = 0;
+    }
+
+    /**
+     * Compares the frame intervals seen on the event dispatch thread with a Swing timer and with the pacer,
+     * for five seconds each. For testing.
+     *
+     * @param args The frame rate, 144 if not given.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public static void main(String @NotNull [] args) throws InterruptedException {
+        int fps = args.length > 0 ? Integer.parseInt(args[0]) : 144;
+        long period = 1_000_000_000L / fps;
+        long[] intervals = new long[fps * 5];
+        int[] count = {0};
+        long[] last = {0};
+        Runnable tick = () -> {
+            long now = System.nanoTime();
+            if (last[0] != 0 && count[0] < intervals.length) {
+                intervals[count[0]++] = now - last[0];
+            }
+            last[0] = now;
+        };
+
+        Timer swingTimer = new Timer((int) (period / 1_000_000L), e -> tick.run());
+        swingTimer.start();
+        Thread.sleep(5000);
+        swingTimer.stop();
+        V2RApp.logger.info("Swing timer at {} fps: {}", fps, describe(intervals, count[0], period));
+
+        count[0] = 0;
+        last[0] = 0;
+        FramePacer pacer = new FramePacer(fps, tick);
+        pacer.start();
+        Thread.sleep(5000);
+        pacer.stop();
+        long[] statistics = pacer.getStatistics();
+        V2RApp.logger.info("Frame pacer at {} fps: {}; {} missed, {} early wakeups, {} late", fps,
+                describe(intervals, count[0], period), statistics[1], statistics[2], statistics[3]);
+    }
+
+    /**
+     * Describes frame intervals.
+     *
+     * @param intervals The intervals in nanoseconds.
+     * @param count     The number of intervals.
+     * @param period    The target interval in nanoseconds.
+     * @return The number of frames, the mean interval, the mean difference from the target and the number of
+     * intervals more than half a frame off.
+     */
+    private static @NotNull String describe(long @NotNull [] intervals, int count, long period) {
+        long sum = 0;
+        long deviation = 0;
+        int uneven = 0;
+        for (int i = 0; i < count; i++) {
+            sum += intervals[i];
+            deviation += Math.abs(intervals[i] - period);
+            if (Math.abs(intervals[i] - period) > period / 2) {
+                uneven++;
+            }
+        }
+        return String.format("%d frames, mean interval %d us, mean jitter %d us, %d intervals off by half a frame",
+                count + 1, count == 0 ? 0 : sum / count / 1000, count == 0 ? 0 : deviation / count / 1000, uneven);
+    }
+}
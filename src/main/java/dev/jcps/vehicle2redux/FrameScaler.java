@@ -0,0 +1,153 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.awt.image.VolatileImage;
+import java.util.function.Consumer;
+
+/**
+ * The {@code FrameScaler} class draws frames at a fixed internal resolution and stretches each one over the window
+ * with a single scaled image copy.
+ * <p>
+ * Filling the background, the vehicle and the HUD costs time in proportion to the number of pixels drawn. With a
+ * lower internal resolution a slow machine draws fewer pixels and still fills a large window, because the one
+ * scaled copy is done by the graphics pipeline, in video memory where it is accelerated. The frame is drawn into a
+ * {@link VolatileImage} when the pipeline has them, and into an ordinary image otherwise. A frame whose image was
+ * lost, for example because the display mode changed, is drawn again.
+ * </p>
+ * <p>
+ * <i>Note: Nearest neighbour scaling keeps the pixels sharp and is the cheapest; bilinear and bicubic scaling look
+ * smoother but cost more where they are not accelerated.</i>
+ * </p>
+ *
+ * @see Vehicle2
+ * @since 1.0
+ */
+public class FrameScaler {
+    /**
+     * The component the images are made for.
+     */
+    private final Component owner;
+    /**
+     * The internal resolution.
+     */
+    private final int width;
+    private final int height;
+    /**
+     * The {@link RenderingHints#KEY_INTERPOLATION} value used to scale the frame.
+     */
+    private final Object interpolation;
+    /**
+     * The frame at the internal resolution, made when first drawn.
+     */
+    private Image frame;
+
+    /**
+     * Constructs a {@code FrameScaler}.
+     *
+     * @param owner         The component the frames are shown on.
+     * @param width         The width of the internal resolution.
+     * @param height        The height of the internal resolution.
+     * @param interpolation The {@link RenderingHints#KEY_INTERPOLATION} value used to scale the frame.
+     */
+    public FrameScaler(@NotNull Component owner, int width, int height, @NotNull Object interpolation) {
+        this.owner = owner;
+        this.width = width;
+        this.height = height;
+        this.interpolation = interpolation;
+    }
+
+    /**
+     * Draws a frame at the internal resolution and scales it to the target.
+     *
+     * @param target       The graphics of the window or of its back buffer.
+     * @param targetWidth  The width to scale to.
+     * @param targetHeight The height to scale to.
+     * @param painter      Draws the frame with graphics of the internal resolution.
+     */
+    public void draw(@NotNull Graphics target, int targetWidth, int targetHeight,
+                     @NotNull Consumer<Graphics> painter) {
+        if (frame == null) {
+            frame = createFrame();
+        }
+        do {
+            if (frame instanceof VolatileImage volatileFrame
+                    && volatileFrame.validate(owner.getGraphicsConfiguration()) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                // Made for another screen or display mode
+                volatileFrame.flush();
+                frame = createFrame();
+            }
+            paint(frame, painter);
+        } while (frame instanceof VolatileImage volatileFrame && volatileFrame.contentsLost());
+
+        Graphics2D g = (Graphics2D) target;
+        Object previous = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        g.drawImage(frame, 0, 0, targetWidth, targetHeight, null);
+        if (previous != null) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, previous);
+        }
+    }
+
+    /**
+     * Lets the painter draw into the frame.
+     *
+     * @param image   The frame.
+     * @param painter Draws the frame.
+     */
+    private static void paint(@NotNull Image image, @NotNull Consumer<Graphics> painter) {
+        Graphics g = image.getGraphics();
+        try {
+            painter.accept(g);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Makes the frame image, accelerated if the graphics pipeline allows it.
+     *
+     * @return The image.
+     */
+    private @NotNull Image createFrame() {
+        Image image = owner.createVolatileImage(width, height);
+        if (image == null) {
+            image = owner.createImage(width, height);
+        }
+        if (V2RApp.debug) {
+            V2RApp.logger.debug("Internal resolution {}x{}, accelerated={}", width, height,
+                    image instanceof VolatileImage);
+        }
+        return image;
+    }
+
+    /**
+     * Releases the frame image.
+     */
+    public void flush() {
+        if (frame != null) {
+            frame.flush();
+            frame = null;
+        }
+    }
+
+    /**
+     * Returns the interpolation for a name given on the command line.
+     *
+     * @param name {@code nearest}, {@code bilinear} or {@code bicubic}.
+     * @return The {@link RenderingHints#KEY_INTERPOLATION} value.
+     * @throws IllegalArgumentException If the name is not one of these.
+     */
+    public static @NotNull Object interpolation(@Nullable String name) {
+        if ("nearest".equals(name)) {
+            return RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR;
+        } else if ("bilinear".equals(name)) {
+            return RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+        } else if ("bicubic".equals(name)) {
+            return RenderingHints.VALUE_INTERPOLATION_BICUBIC;
+        }
+        throw new IllegalArgumentException("Unknown scale filter: " + name);
+    }
+}
@@ -0,0 +1,94 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.function.Consumer;
+
+/**
+ * The {@code GameCanvas} class draws the game with active rendering: each frame is drawn straight into the back
+ * buffer of a {@link BufferStrategy} and shown at once, instead of being drawn into an image that Swing copies to
+ * the screen whenever it gets around to repainting.
+ * <p>
+ * The canvas asks for page flipping, and falls back to a blitting strategy where the window system cannot flip.
+ * Either way the back buffers are accelerated {@link java.awt.image.VolatileImage}s when the graphics pipeline
+ * supports them, so drawing the frame and showing it stay in video memory. A frame whose buffer was lost, for example
+ * because the display mode changed, is drawn again.
+ * </p>
+ * <p>
+ * <i>Note: The canvas ignores repaints and never takes the focus, so the keys still go to the game window.</i>
+ * </p>
+ *
+ * @see Vehicle2
+ * @since 1.0
+ */
+public class GameCanvas extends Canvas {
+    /**
+     * The number of buffers, the one on screen included.
+     */
+    private static final int BUFFERS = 2;
+
+    /**
+     * Constructs a new {@code GameCanvas}.
+     */
+    public GameCanvas() {
+        setIgnoreRepaint(true);
+        setFocusable(false);
+        setBackground(Color.black);
+    }
+
+    /**
+     * Draws a frame into the back buffer and shows it, drawing it again as long as the buffer is lost meanwhile.
+     * Does nothing while the canvas is not on screen.
+     *
+     * @param painter Draws the frame with the graphics of the back buffer.
+     * @return {@code true} if the frame was shown.
+     */
+    public boolean present(@NotNull Consumer<Graphics> painter) {
+        if (!isDisplayable() || getWidth() <= 0 || getHeight() <= 0) {
+            return false;
+        }
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) {
+            strategy = createStrategy();
+        }
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    painter.accept(g);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        // Flush the window system's queue so the frame is not held back
+        Toolkit.getDefaultToolkit().sync();
+        return true;
+    }
+
+    /**
+     * Creates the buffer strategy, with page flipping if it is available.
+     *
+     * @return The buffer strategy.
+     */
+    private @NotNull BufferStrategy createStrategy() {
+        BufferCapabilities flipping = new BufferCapabilities(new ImageCapabilities(true),
+                new ImageCapabilities(true), BufferCapabilities.FlipContents.UNDEFINED);
+        try {
+            createBufferStrategy(BUFFERS, flipping);
+        } catch (AWTException e) {
+            if (V2RApp.debug) V2RApp.logger.debug("Page flipping not available: {}", e.getMessage());
+            createBufferStrategy(BUFFERS);
+        }
+        BufferStrategy strategy = getBufferStrategy();
+        if (V2RApp.debug) {
+            BufferCapabilities capabilities = strategy.getCapabilities();
+            V2RApp.logger.debug("Active rendering: page flipping={}, accelerated back buffer={}",
+                    capabilities.isPageFlipping(), capabilities.getBackBufferCapabilities().isAccelerated());
+        }
+        return strategy;
+    }
+}
@@ -47,15 +47,33 @@ public class GameParams {
     public static final String F_ENGINE = "FEngine";
     public static final String DT = "dt";
     public static final String DELAY = "delay";
+    public static final String SUBSTEPS = "substeps";
+    public static final String INTEGRATOR = "integrator";
+    public static final String COLLISION = "collision";
+    public static final String BOUNCE = "bounce";
+    public static final String GRIP = "grip";
+    public static final String TERRAIN_BUDGET = "terrainBudget";
+    public static final String SPRING_LIMIT = "springLimit";
     public static final String REIBUNG = "Reibung";
     public static final String REIBUNG_W = "ReibungW";
     public static final String GRAVITY = "Gravity";
+    /**
+     * The start of the keys declaring zones, followed by the name of the zone.
+     *
+     * @see Zone
+     */
+    public static final String ZONE_PREFIX = "Zone.";
     /**
      * A HashMap that stores key-value pairs representing various game parameters.
      * The keys are String identifiers for the parameters, and the values are their corresponding settings.
      */
     @SuppressWarnings("all")
     public HashMap<String, String> paramMap;
+    /**
+     * The parsed parameters, and a copy of {@link #paramMap} as it was when they were parsed.
+     */
+    private LevelSettings settings = null;
+    private HashMap<String, String> settingsSource = null;
 
     /**
      * Constructs a {@code GameParams} object and initialises it with the default game settings,
@@ -97,6 +115,13 @@ public class GameParams {
         paramMap.put(GRAVITY, "70");
         paramMap.put(DT, "25");
         paramMap.put(DELAY, "10"); // Milliseconds.
+        paramMap.put(SUBSTEPS, "1"); // Physics sub-steps per delay.
+        paramMap.put(INTEGRATOR, "legacy"); // legacy, symplectic or verlet
+        paramMap.put(COLLISION, "terrain"); // terrain or sdf
+        paramMap.put(BOUNCE, "0"); // percent of the impact speed kept (sdf collision only)
+        paramMap.put(GRIP, "50"); // percent of the sliding speed lost on contact (sdf collision only)
+        paramMap.put(TERRAIN_BUDGET, "64"); // megabytes of terrain kept in memory
+        paramMap.put(SPRING_LIMIT, "0"); // hundredths of k*dt^2*(1/mA+1/mB), 0 for none (symplectic only)
         paramMap.put(REIBUNG, "990"); // Friction in thousandths
         paramMap.put(REIBUNG_W, "965"); // Friction in thousandths
         paramMap.put("width", "800"); // pixels
@@ -150,7 +175,49 @@ public class GameParams {
             paramMap.put(DELAY, hashMap.get(DELAY)); // Milliseconds.
             paramMap.put(REIBUNG, hashMap.get(REIBUNG)); // Friction in thousandths
             paramMap.put(REIBUNG_W, hashMap.get(REIBUNG_W)); // Friction in thousandths
+
+            // Optional parameters keep their defaults when the .map file does not set them
+            putIfPresent(hashMap, SUBSTEPS);
+            putIfPresent(hashMap, INTEGRATOR);
+            putIfPresent(hashMap, COLLISION);
+            putIfPresent(hashMap, BOUNCE);
+            putIfPresent(hashMap, GRIP);
+            putIfPresent(hashMap, TERRAIN_BUDGET);
+            putIfPresent(hashMap, SPRING_LIMIT);
+            hashMap.forEach((key, value) -> {
+                if (key.startsWith(ZONE_PREFIX)) {
+                    paramMap.put(key, value);
+                }
+            });
+        }
+    }
+
+    /**
+     * Copies the value of a key from the given map into the paramMap, but only if the map contains that key.
+     *
+     * @param hashMap The HashMap read from the {@code .map} file.
+     * @param key     The key to copy.
+     */
+    private void putIfPresent(@NotNull HashMap<String, String> hashMap, String key) {
+        String value = hashMap.get(key);
+        if (value != null) {
+            paramMap.put(key, value);
+        }
+    }
+
+    /**
+     * Returns the parameters parsed and checked, parsing them on the first call and again whenever
+     * {@link #paramMap} has been changed since. Problems with the parameters are logged when they are parsed.
+     *
+     * @return The level settings.
+     * @see LevelSettings
+     */
+    public synchronized @NotNull LevelSettings getSettings() {
+        if (settings == null || !paramMap.equals(settingsSource)) {
+            settingsSource = new HashMap<>(paramMap);
+            settings = new LevelSettings(settingsSource);
         }
+        return settings;
     }
 
     /**
@@ -159,7 +226,10 @@ public class GameParams {
      * @param key The key associated with the integer value to be retrieved.
      * @return The integer value associated with the specified key.
      * @throws NumberFormatException If the value associated with the key cannot be parsed as an integer.
+     * @see #getSettings()
+     * @deprecated Parses the value on every call; read the checked value from {@link #getSettings()} instead.
      */
+    @Deprecated
     public int getInt(String key) {
         return Integer.parseInt(paramMap.get(key));
     }
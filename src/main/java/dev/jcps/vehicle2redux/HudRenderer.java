@@ -0,0 +1,401 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@code HudRenderer} class draws the heads-up display of the game: the GitHub link, the level time, the zone
+ * message and the goal countdown.
+ * <p>
+ * Laying out text with {@code drawString} every frame, and building the strings and colors for it, costs time and
+ * leaves garbage behind. Instead, each line of text is kept as a small image that is only made again when its value
+ * changes, about once a second, and is otherwise drawn with a single {@code drawImage}. The images are put together
+ * from an atlas per color, holding the digits and each label rendered once, so making a line again only copies
+ * glyphs and builds no strings.
+ * </p>
+ * <p>
+ * <i>Note: The glyphs are rendered with the font and text antialiasing of the graphics first drawn with, so the
+ * display looks as it did with {@code drawString}. With software rendering, blending the images costs about as much
+ * as drawing the text did; they pay off where images are kept in video memory.</i>
+ * </p>
+ *
+ * @see Vehicle2
+ * @since 1.0
+ */
+public class HudRenderer {
+    /**
+     * The color of the text and of the GitHub link.
+     */
+    static final Color TEXT = Color.black;
+    /**
+     * The color of the GitHub link while the mouse is over it.
+     */
+    static final Color LINK_HOVER = new Color(0, 0, 255);
+    /**
+     * The color of the goal countdown.
+     */
+    static final Color GOAL = new Color(255, 0, 0);
+    /**
+     * The color of the button behind the GitHub link.
+     */
+    static final Color BUTTON = Color.GRAY;
+    /**
+     * The characters of a number, in the order they are kept in an atlas.
+     */
+    private static final String DIGITS = "0123456789-";
+    /**
+     * The most characters a number can have.
+     */
+    private static final int MAX_DIGITS = 20;
+    /**
+     * The atlases, one per color, made when first needed.
+     */
+    private final Map<Color, GlyphAtlas> atlases = new HashMap<>();
+    /**
+     * The text of the GitHub link.
+     */
+    private final TextLine link = new TextLine();
+    /**
+     * The text of the GitHub link while the mouse is over it.
+     */
+    private final TextLine linkHover = new TextLine();
+    /**
+     * The level time.
+     */
+    private final TextLine time = new TextLine();
+    /**
+     * The message of the zone entered last.
+     */
+    private final TextLine message = new TextLine();
+    /**
+     * The goal countdown.
+     */
+    private final TextLine countdown = new TextLine();
+    /**
+     * The font of the glyphs, taken from the first graphics drawn with.
+     */
+    private Font font;
+    /**
+     * The text antialiasing of the glyphs, taken from the first graphics drawn with.
+     */
+    private Object antialiasing;
+    /**
+     * The metrics of {@link #font}.
+     */
+    private FontMetrics metrics;
+    /**
+     * The digits of a number, reused.
+     */
+    private final int[] digits = new int[MAX_DIGITS];
+
+    /**
+     * Draws the GitHub link in the top-left corner.
+     *
+     * @param g     The graphics to draw with.
+     * @param hover {@code true} if the mouse is over the link.
+     */
+    public void drawLink(@NotNull Graphics2D g, boolean hover) {
+        prepare(g);
+        g.setColor(BUTTON);
+        g.fillRect(10, 10, 85, 18);
+        Color color = hover ? LINK_HOVER : TEXT;
+        g.setColor(color);
+        g.drawRect(10, 10, 85, 18);
+        TextLine line = hover ? linkHover : link;
+        line.setText(color, "GitHub");
+        line.draw(g, 32, 24);
+    }
+
+    /**
+     * Draws the level time.
+     *
+     * @param g       The graphics to draw with.
+     * @param seconds The level time in seconds.
+     */
+    public void drawTime(@NotNull Graphics2D g, long seconds) {
+        prepare(g);
+        time.setNumber(TEXT, "Time: ", seconds);
+        time.draw(g, 380, 24);
+    }
+
+    /**
+     * Draws the message of the zone entered last, below the level time.
+     *
+     * @param g    The graphics to draw with.
+     * @param text The message.
+     */
+    public void drawMessage(@NotNull Graphics2D g, @NotNull String text) {
+        prepare(g);
+        message.setText(TEXT, text);
+        message.draw(g, 380, 44);
+    }
+
+    /**
+     * Draws how long the vehicle still has to stay inside the goal.
+     *
+     * @param g       The graphics to draw with.
+     * @param x       The left edge of the text.
+     * @param y       The baseline of the text.
+     * @param seconds The seconds left.
+     */
+    public void drawCountdown(@NotNull Graphics2D g, int x, int y, long seconds) {
+        prepare(g);
+        countdown.setNumber(GOAL, "Stay inside the goal: ", seconds);
+        countdown.draw(g, x, y);
+    }
+
+    /**
+     * Takes the font and antialiasing of the graphics the first time, and starts over if they change.
+     *
+     * @param g The graphics to draw with.
+     */
+    private void prepare(@NotNull Graphics2D g) {
+        Font f = g.getFont();
+        Object aa = g.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING);
+        if (f.equals(font) && (aa == null ? antialiasing == null : aa.equals(antialiasing))) {
+            return;
+        }
+        font = f;
+        antialiasing = aa;
+        metrics = g.getFontMetrics(f);
+        atlases.clear();
+        for (TextLine line : new TextLine[]{link, linkHover, time, message, countdown}) {
+            line.clear();
+        }
+    }
+
+    private @NotNull GlyphAtlas atlas(@NotNull Color color) {
+        return atlases.computeIfAbsent(color, GlyphAtlas::new);
+    }
+
+    /**
+     * Makes a transparent image with text rendered as {@code drawString} would.
+     *
+     * @param text  The text.
+     * @param color The color.
+     * @return The image, with the baseline at the ascent of the font.
+     */
+    private @NotNull BufferedImage render(@NotNull String text, @NotNull Color color) {
+        BufferedImage image = newImage(metrics.stringWidth(text));
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setFont(font);
+            if (antialiasing != null) {
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, antialiasing);
+            }
+            g.setColor(color);
+            g.drawString(text, 0, metrics.getAscent());
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Makes a transparent image one line high.
+     *
+     * @param width The width.
+     * @return The image.
+     */
+    private @NotNull BufferedImage newImage(int width) {
+        return new BufferedImage(Math.max(1, width), lineHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    private int lineHeight() {
+        return metrics.getAscent() + metrics.getDescent();
+    }
+
+    /**
+     * The digits and labels of one color, each rendered once.
+     */
+    private final class GlyphAtlas {
+        /**
+         * The color of the glyphs.
+         */
+        final Color color;
+        /**
+         * The digits side by side.
+         */
+        final BufferedImage digitImage;
+        /**
+         * Where each digit starts in {@link #digitImage}.
+         */
+        final int[] digitX = new int[DIGITS.length()];
+        /**
+         * How wide each digit is.
+         */
+        final int[] digitWidth = new int[DIGITS.length()];
+        /**
+         * The labels rendered so far.
+         */
+        final Map<String, BufferedImage> labels = new HashMap<>();
+
+        GlyphAtlas(@NotNull Color color) {
+            this.color = color;
+            int x = 0;
+            for (int i = 0; i < DIGITS.length(); i++) {
+                digitX[i] = x;
+                digitWidth[i] = metrics.charWidth(DIGITS.charAt(i));
+                x += digitWidth[i];
+            }
+            digitImage = newImage(x);
+            Graphics2D g = digitImage.createGraphics();
+            try {
+                g.setFont(font);
+                if (antialiasing != null) {
+                    g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, antialiasing);
+                }
+                g.setColor(color);
+                for (int i = 0; i < DIGITS.length(); i++) {
+                    g.drawString(DIGITS.substring(i, i + 1), digitX[i], metrics.getAscent());
+                }
+            } finally {
+                g.dispose();
+            }
+        }
+
+        @NotNull BufferedImage label(@NotNull String text) {
+            return labels.computeIfAbsent(text, t -> render(t, color));
+        }
+    }
+
+    /**
+     * One line of text, kept as an image until its text changes.
+     */
+    private final class TextLine {
+        /**
+         * The rendered line, made again only when the width of the text changes.
+         */
+        private BufferedImage image;
+        /**
+         * The width of the text in the image.
+         */
+        private int width;
+        /**
+         * The color of the text.
+         */
+        private Color color;
+        /**
+         * The text, or the label in front of the number.
+         */
+        private String label;
+        /**
+         * The number after the label.
+         */
+        private long value;
+        /**
+         * Whether the line is a label followed by a number.
+         */
+        private boolean numbered;
+
+        void clear() {
+            image = null;
+            label = null;
+        }
+
+        /**
+         * Sets the line to a label followed by a number, making the image again only if they changed.
+         */
+        void setNumber(@NotNull Color color, @NotNull String label, long value) {
+            if (image != null && numbered && value == this.value && color.equals(this.color)
+                    && label.equals(this.label)) {
+                return;
+            }
+            GlyphAtlas atlas = atlas(color);
+            BufferedImage labelImage = atlas.label(label);
+            int count = toDigits(value);
+            int total = labelImage.getWidth();
+            for (int i = 0; i < count; i++) {
+                total += atlas.digitWidth[digits[i]];
+            }
+            Graphics2D g = begin(total);
+            try {
+                g.drawImage(labelImage, 0, 0, null);
+                int x = labelImage.getWidth();
+                int h = lineHeight();
+                for (int i = 0; i < count; i++) {
+                    int d = digits[i];
+                    int w = atlas.digitWidth[d];
+                    g.drawImage(atlas.digitImage, x, 0, x + w, h, atlas.digitX[d], 0, atlas.digitX[d] + w, h, null);
+                    x += w;
+                }
+            } finally {
+                g.dispose();
+            }
+            this.color = color;
+            this.label = label;
+            this.value = value;
+            this.numbered = true;
+        }
+
+        /**
+         * Sets the line to a text, making the image again only if it changed.
+         */
+        void setText(@NotNull Color color, @NotNull String text) {
+            if (image != null && !numbered && text.equals(this.label) && color.equals(this.color)) {
+                return;
+            }
+            BufferedImage textImage = atlas(color).label(text);
+            Graphics2D g = begin(textImage.getWidth());
+            try {
+                g.drawImage(textImage, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+            this.color = color;
+            this.label = text;
+            this.numbered = false;
+        }
+
+        /**
+         * Clears the image for a new text, making a new one only if the width changed.
+         */
+        private @NotNull Graphics2D begin(int textWidth) {
+            if (image == null || image.getWidth() != Math.max(1, textWidth)) {
+                image = newImage(textWidth);
+            }
+            width = textWidth;
+            Graphics2D g = image.createGraphics();
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setComposite(AlphaComposite.SrcOver);
+            return g;
+        }
+
+        void draw(@NotNull Graphics2D g, int x, int baseline) {
+            if (width > 0) {
+                int top = baseline - metrics.getAscent();
+                g.drawImage(image, x, top, null);
+            }
+        }
+    }
+
+    /**
+     * Writes the digits of a number into {@link #digits}, as indices into {@link #DIGITS}.
+     *
+     * @param value The number.
+     * @return The number of characters.
+     */
+    private int toDigits(long value) {
+        int count = 0;
+        long rest = Math.abs(value);
+        do {
+            digits[count++] = (int) (rest % 10);
+            rest /= 10;
+        } while (rest > 0 && count < MAX_DIGITS - 1);
+        if (value < 0) {
+            digits[count++] = DIGITS.indexOf('-');
+        }
+        // The digits were found last first
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+            int swap = digits[i];
+            digits[i] = digits[j];
+            digits[j] = swap;
+        }
+        return count;
+    }
+}
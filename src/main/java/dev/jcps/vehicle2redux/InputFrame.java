@@ -0,0 +1,58 @@
+package dev.jcps.vehicle2redux;
+
+/**
+ * The {@code InputFrame} class describes the player input applied to a {@link Simulation} before a step.
+ * <p>
+ * {@code left} and {@code right} are held controls and keep their value from frame to frame. All other fields are
+ * events: they describe key presses since the previous step and are reset by {@link #clearEvents()} once applied.
+ * </p>
+ *
+ * @see Simulation#apply(InputFrame)
+ * @since 1.0
+ */
+public class InputFrame {
+    /**
+     * Drive left (held).
+     */
+    public boolean left;
+    /**
+     * Drive right (held).
+     */
+    public boolean right;
+    /**
+     * Fire the current rope, or cut it if it is already out.
+     */
+    public boolean fireHook;
+    /**
+     * Shorten (pull) the current rope.
+     */
+    public boolean windRope;
+    /**
+     * Lengthen the current rope.
+     */
+    public boolean unwindRope;
+    /**
+     * The rope slot to switch to (0 or 1), or -1 to keep the current one.
+     */
+    public int ropeSlot = -1;
+    /**
+     * Number of turret rotation steps: negative is contra-clockwise, positive is clockwise.
+     */
+    public int turret;
+    /**
+     * Number of buoyancy steps: positive floats up, negative dives.
+     */
+    public int buoyancy;
+
+    /**
+     * Resets all event fields, keeping the held controls.
+     */
+    public void clearEvents() {
+        fireHook = false;
+        windRope = false;
+        unwindRope = false;
+        ropeSlot = -1;
+        turret = 0;
+        buoyancy = 0;
+    }
+}
@@ -0,0 +1,31 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The {@code InputScript} interface supplies the player input for a {@link Simulation} run without a player,
+ * for example in a {@link BatchSimulator}.
+ * <p>
+ * <i>Note: A script may be shared by several runs at once, so it must not keep state between calls.</i>
+ * </p>
+ *
+ * @see InputFrame
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface InputScript {
+    /**
+     * A script that never presses anything.
+     */
+    InputScript IDLE = (step, frame) -> {
+    };
+
+    /**
+     * Fills in the input for one step. The frame still holds the controls of the previous step and its events
+     * have already been cleared.
+     *
+     * @param step  The index of the step about to be simulated, starting at 0.
+     * @param frame The input to fill in.
+     */
+    void fill(long step, @NotNull InputFrame frame);
+}
@@ -0,0 +1,26 @@
+package dev.jcps.vehicle2redux;
+
+/**
+ * The {@code Integrator} enum lists the ways a {@link Simulation} can advance the vehicle over one time step.
+ * The integrator of a level is chosen with the {@code integrator} parameter of its {@code .map} file.
+ *
+ * @since 1.0
+ */
+public enum Integrator {
+    /**
+     * The original update: spring forces change the velocities, then friction is applied once per step and the
+     * positions move with the new velocities. Only stable for small values of {@code dt}.
+     */
+    LEGACY,
+    /**
+     * Symplectic (semi-implicit) Euler. Same order of updates as {@link #LEGACY}, but friction is scaled to the
+     * length of the step and each spring is softened just enough to stay stable at the step size in use.
+     */
+    SYMPLECTIC,
+    /**
+     * Position Verlet. The positions are predicted from the velocities, the springs are then corrected on the
+     * predicted positions and the new velocities are taken from how far the nodes actually moved.
+     * A spring never corrects more than its full stretch, so the vehicle cannot explode at large steps.
+     */
+    VERLET
+}
@@ -0,0 +1,244 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * The {@code LevelAssetCache} class keeps the decoded background images and the classified terrains of recently
+ * played levels, so that retrying or restarting a level does not read or decode anything from disk again.
+ * <p>
+ * The assets are kept per {@code .map} file. When they take more memory than the budget allows, the assets of the
+ * level used least recently are dropped; the level being loaded is always kept, even if it is over the budget on
+ * its own. The terrains are never changed once loaded and the images are only drawn, so both are handed out to any
+ * number of simulations and panels at once. Only heap memory is counted: a terrain mapped from its
+ * {@link TerrainCache} counts its distance field but not the mapped file.
+ * </p>
+ * <p>
+ * <i>Note: Assets are loaded outside the cache lock, so loading one level does not hold up lookups of another.
+ * Two threads asking for the same level at once load it only once.</i>
+ * </p>
+ *
+ * @see LevelPreloader
+ * @since 1.0
+ */
+public class LevelAssetCache {
+    /**
+     * The budget of {@link #SHARED} unless {@code --asset-cache} is given, in megabytes.
+     */
+    static final int DEFAULT_BUDGET = 64;
+    /**
+     * The cache used by the game.
+     */
+    static final LevelAssetCache SHARED = new LevelAssetCache(DEFAULT_BUDGET * 1024L * 1024L);
+    /**
+     * The assets of each level by {@code .map} file, least recently used first. Guarded by {@code this}.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * The memory the assets may take in bytes. This, the total and the statistics are guarded by {@code this}.
+     */
+    private long budget;
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Constructs an empty {@code LevelAssetCache}.
+     *
+     * @param budget The memory the assets may take in bytes.
+     */
+    public LevelAssetCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the classified terrain of a level, loading it if it is not cached.
+     *
+     * @param map The level.
+     * @return The terrain.
+     * @throws IOException If the terrain data image is missing or cannot be read.
+     */
+    public @NotNull Terrain getTerrain(@NotNull LevelMap map) throws IOException {
+        String source = map.get(GameParams.BILD) + ":" + map.get(GameParams.BILD_W) + "x" + map.get(GameParams.BILD_H);
+        Entry entry = entry(map.getFilename());
+        Terrain terrain;
+        synchronized (entry) {
+            terrain = entry.terrain;
+            boolean hit = terrain != null && source.equals(entry.terrainSource);
+            count(hit);
+            if (!hit) {
+                terrain = TerrainLoader.load(map.lp);
+                entry.terrain = terrain;
+                entry.terrainSource = source;
+            }
+        }
+        account(map.getFilename(), entry);
+        return terrain;
+    }
+
+    /**
+     * Returns the background image ({@code Bild_c}) of a level, reading it if it is not cached.
+     *
+     * @param map The level.
+     * @return The image, or {@code null} if the level has none or it cannot be read.
+     */
+    public @Nullable BufferedImage getBackground(@NotNull LevelMap map) {
+        String source = map.get("Bild_c");
+        if (source == null) {
+            return null;
+        }
+        Entry entry = entry(map.getFilename());
+        BufferedImage image;
+        synchronized (entry) {
+            image = entry.background;
+            boolean hit = image != null && source.equals(entry.backgroundSource);
+            count(hit);
+            if (!hit) {
+                try {
+                    image = ImageIO.read(new File(source));
+                } catch (IOException e) {
+                    if (V2RApp.debug) V2RApp.logger.warn("Image not found! {}", e.getMessage());
+                    image = null;
+                }
+                entry.background = image;
+                entry.backgroundSource = source;
+            }
+        }
+        account(map.getFilename(), entry);
+        return image;
+    }
+
+    /**
+     * Changes the memory budget, dropping assets if they no longer fit.
+     *
+     * @param budget The memory the assets may take in bytes.
+     */
+    public synchronized void setBudget(long budget) {
+        this.budget = budget;
+        evict(null);
+    }
+
+    /**
+     * Returns the memory taken by the cached assets, as measured when they were last used.
+     *
+     * @return The size in bytes.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns how often an asset was found in the cache, how often it had to be loaded and how often the assets of
+     * a level were dropped, for tuning the budget.
+     *
+     * @return {@code {hits, misses, evictions}}.
+     */
+    public synchronized long[] getStatistics() {
+        return new long[]{hits, misses, evictions};
+    }
+
+    /**
+     * Drops every cached asset.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Returns the entry of a level, adding an empty one if there is none, and marks it as the most recently used.
+     *
+     * @param key The {@code .map} file of the level.
+     * @return The entry.
+     */
+    private synchronized @NotNull Entry entry(@NotNull String key) {
+        return entries.computeIfAbsent(key, k -> new Entry());
+    }
+
+    private synchronized void count(boolean hit) {
+        if (hit) {
+            hits++;
+        } else {
+            misses++;
+        }
+    }
+
+    /**
+     * Measures an entry again after it was used, then drops other levels while over the budget.
+     * An entry dropped while it was being loaded is not counted.
+     *
+     * @param key   The {@code .map} file of the level.
+     * @param entry The entry of the level.
+     */
+    private void account(@NotNull String key, @NotNull Entry entry) {
+        // Measured outside the lock: a terrain may be busy building its distance field
+        long size = entry.measure();
+        synchronized (this) {
+            if (entries.get(key) != entry) {
+                return;
+            }
+            bytes += size - entry.bytes;
+            entry.bytes = size;
+            evict(entry);
+        }
+    }
+
+    /**
+     * Drops the least recently used levels until the assets fit the budget.
+     *
+     * @param keep The entry that must stay, or {@code null}.
+     */
+    private void evict(@Nullable Entry keep) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytes > budget && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry != keep) {
+                iterator.remove();
+                bytes -= entry.bytes;
+                evictions++;
+                if (V2RApp.debug) V2RApp.logger.debug("Dropped cached level assets, {} bytes", entry.bytes);
+            }
+        }
+    }
+
+    /**
+     * Returns roughly how much memory a decoded image takes.
+     *
+     * @param image The image.
+     * @return The size in bytes.
+     */
+    private static long imageBytes(@NotNull BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * The assets of one level. The assets are set while holding the entry's lock; they are volatile so the cache
+     * can measure them while holding its own.
+     */
+    private static final class Entry {
+        volatile Terrain terrain;
+        volatile String terrainSource;
+        volatile BufferedImage background;
+        volatile String backgroundSource;
+        /**
+         * The size counted in the total of the cache. Guarded by the cache.
+         */
+        long bytes = 0;
+
+        long measure() {
+            Terrain t = terrain;
+            BufferedImage b = background;
+            return (t != null ? t.getMemoryBytes() : 0) + (b != null ? imageBytes(b) : 0);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The {@code LevelPreloader} class loads a level on a background thread while another one is being played.
+ * <p>
+ * Loading a level means reading and classifying its terrain, building its vehicle and reading its background
+ * image, unless they are still in the {@link LevelAssetCache}. Done on the event dispatch thread between two levels,
+ * that freezes the screen; started as soon as the previous level begins, it is normally finished long before the
+ * goal has been reached.
+ * </p>
+ * <p>
+ * <i>Note: Only one level is preloaded at a time. Asking for another level drops the previous one.</i>
+ * </p>
+ *
+ * @see Vehicle2#init()
+ * @since 1.0
+ */
+public class LevelPreloader {
+    /**
+     * Loads the levels, one at a time, in the background.
+     */
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "level-preload");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    /**
+     * The level being preloaded, or {@code null}.
+     */
+    private LevelMap map = null;
+    /**
+     * The result of preloading {@link #map}.
+     */
+    private Future<Level> pending = null;
+
+    /**
+     * Starts loading a level in the background, unless it is already being loaded.
+     *
+     * @param map The level to load.
+     */
+    public synchronized void preload(@NotNull LevelMap map) {
+        if (this.map == map) {
+            return;
+        }
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        if (V2RApp.debug) V2RApp.logger.debug("Preloading level {}", map.getFilename());
+        this.map = map;
+        this.pending = LOADER.submit(() -> load(map));
+    }
+
+    /**
+     * Returns a preloaded level and forgets it, so it is only used once. If the level is still loading, this
+     * waits for it, which is never slower than loading it again.
+     *
+     * @param map The level wanted.
+     * @return The loaded level, or {@code null} if that level was not preloaded or loading it failed.
+     */
+    public synchronized @Nullable Level take(@NotNull LevelMap map) {
+        if (this.map != map) {
+            return null;
+        }
+        Future<Level> result = pending;
+        this.map = null;
+        this.pending = null;
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            V2RApp.logger.warn("Could not preload level {}: {}", map.getFilename(), e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Loads a level on the calling thread. The terrain and the background come from {@link LevelAssetCache#SHARED},
+     * so loading a level that was played recently reads nothing from disk.
+     *
+     * @param map The level to load.
+     * @return The loaded level.
+     * @throws IOException If the terrain of the level cannot be loaded.
+     */
+    static @NotNull Level load(@NotNull LevelMap map) throws IOException {
+        long start = System.nanoTime();
+        Simulation sim = new Simulation(map.lp, LevelAssetCache.SHARED.getTerrain(map));
+        Image background = LevelAssetCache.SHARED.getBackground(map);
+        if (V2RApp.debug) {
+            V2RApp.logger.debug("Loaded level {} in {} ms", map.getFilename(), (System.nanoTime() - start) / 1_000_000);
+        }
+        return new Level(map, sim, background);
+    }
+
+    /**
+     * A level ready to be played.
+     *
+     * @param map        The level.
+     * @param sim        The simulation of the level, not stepped yet.
+     * @param background The background image, or {@code null} if it could not be read.
+     */
+    public record Level(@NotNull LevelMap map, @NotNull Simulation sim, @Nullable Image background) {
+    }
+}
@@ -1,19 +1,21 @@
 package dev.jcps.vehicle2redux;
 
-import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The {@code LevelSelectPanel} class represents a custom JPanel for selecting a game level to play.
  * It presents a grid of buttons, each corresponding to a level, with the associated art image.
+ * The images are shown as thumbnails from the {@link ThumbnailCache}, loaded in the background for the page shown
+ * and the pages next to it only.
  * <p>
  * Users can navigate through multiple pages of levels and interact with the game by selecting a level to play.
  * The panel emits events based on the user's level selection, which can be captured by registered {@code TriggerListeners}.
@@ -31,6 +33,18 @@ public class LevelSelectPanel extends JPanel {
      * A constant representing the number of level buttons to be displayed per page.
      */
     private static final int BUTTONS_PER_PAGE = 4;
+    /**
+     * Shown on a level button until its thumbnail has been loaded.
+     */
+    private static final ImageIcon PLACEHOLDER = createPlaceholder();
+    /**
+     * Loads the thumbnails, one at a time, in the background.
+     */
+    private static final ExecutorService THUMBNAILER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "thumbnails");
+        thread.setDaemon(true);
+        return thread;
+    });
     /**
      * A list of {@code TriggerListeners} registered with this panel. These listeners will be notified
      * when certain events occur within this panel.
@@ -44,6 +58,14 @@ public class LevelSelectPanel extends JPanel {
      * @see javax.swing.JButton
      */
     ArrayList<JButton> btnLevels;
+    /**
+     * The path of the art image of each level, in the order of {@link #btnLevels}.
+     */
+    private final ArrayList<String> imagePaths;
+    /**
+     * Whether the thumbnail of each button has been asked for already.
+     */
+    private final BitSet thumbnailRequested;
     /**
      * The current page number being displayed by the panel. This value changes as the user navigates through the level pages.
      */
@@ -58,97 +80,123 @@ public class LevelSelectPanel extends JPanel {
      */
     public LevelSelectPanel(@NotNull ArrayList<LevelMap> maps) {
         btnLevels = new ArrayList<>();
+        imagePaths = new ArrayList<>();
+        thumbnailRequested = new BitSet();
+        currentPage = 0;
 
-        int mapIndex = 0;
         for (LevelMap map : maps) {
-            JButton btn = createImageButton(map.get("Bild_c"));
-            int finalMapIndex = mapIndex;
-            btn.addActionListener(e -> {
-                JButton button = (JButton) e.getSource();
-                String btnText = button.getText();
-                if (V2RApp.debug) System.out.println("Selected level: " + btnText);
-                fireEvent("map:" + finalMapIndex);
-            });
-            btnLevels.add(btn);
-            mapIndex++;
+            addButton(map);
         }
 
         // Display the buttons for the first page
         updateButtonsForPage(0);
-
-        currentPage = 0;
     }
 
     /**
-     * Calculates and returns the new dimensions of an image when scaled to fit within a 200x200 pixel area
-     * while preserving the original aspect ratio.
+     * Adds a button for a level discovered after the panel was made, after the buttons already there.
+     * The page shown is updated if the new button belongs on it or changes the page navigation.
      *
-     * @param originalWidth  The original width of the image.
-     * @param originalHeight The original height of the image.
-     * @return An array containing the new width and height of the image after scaling.
-     */
-    @Contract(value = "_, _ -> new", pure = true)
-    private static int @NotNull [] scaleImage(int originalWidth, int originalHeight) {
-        int newWidth;
-        int newHeight;
-
-        // Calculate new dimensions while preserving aspect ratio
-        if (originalWidth > originalHeight) {
-            // Landscape orientation
-            newWidth = 200;
-            newHeight = (int) ((double) originalHeight / originalWidth * 200);
-        } else {
-            // Portrait or square orientation
-            newHeight = 200;
-            newWidth = (int) ((double) originalWidth / originalHeight * 200);
+     * @param map The level.
+     */
+    public void addLevel(@NotNull LevelMap map) {
+        addButton(map);
+        int index = btnLevels.size() - 1;
+        if (index / BUTTONS_PER_PAGE <= currentPage + 1 || index % BUTTONS_PER_PAGE == 0) {
+            updateButtonsForPage(currentPage);
         }
+    }
+
+    /**
+     * Creates the button of a level and adds it to the list.
+     *
+     * @param map The level.
+     */
+    private void addButton(@NotNull LevelMap map) {
+        int mapIndex = btnLevels.size();
+        imagePaths.add(map.get("Bild_c"));
+        JButton btn = createImageButton(map.get("Bild_c"));
+        btn.addActionListener(e -> {
+            JButton button = (JButton) e.getSource();
+            String btnText = button.getText();
+            if (V2RApp.debug) System.out.println("Selected level: " + btnText);
+            fireEvent("map:" + mapIndex);
+        });
+        btnLevels.add(btn);
+    }
 
-        return new int[]{newWidth, newHeight};
+    /**
+     * Creates the placeholder shown before a thumbnail is ready: a grey box the size of a landscape thumbnail.
+     *
+     * @return The placeholder icon.
+     */
+    private static @NotNull ImageIcon createPlaceholder() {
+        int[] size = ThumbnailCache.scaleImage(3, 2);
+        BufferedImage image = new BufferedImage(size[0], size[1], BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.LIGHT_GRAY);
+        g.fillRect(0, 0, size[0], size[1]);
+        g.dispose();
+        return new ImageIcon(image);
     }
 
     /**
-     * Creates a level selection {@code JButton} with an associated image read from the specified file path.
+     * Creates a level selection {@code JButton} showing a placeholder until the thumbnail of the level art has been
+     * loaded by {@link #loadThumbnails(int)}. Nothing is read from disk here.
      * The button's text is set to the name of the image file (without the extension).
      *
      * @param imagePath The path to the image file to be displayed on the button.
-     * @return A {@code JButton} with the scaled image and text.
+     * @return A {@code JButton} with the placeholder and text.
      * @see javax.swing.JButton
      */
-    private @NotNull JButton createImageButton(@NotNull String imagePath) {
-        JButton button = new JButton();
+    private @NotNull JButton createImageButton(String imagePath) {
+        JButton button = new JButton(PLACEHOLDER);
         String description = "";
 
-        try {
+        if (imagePath != null) {
             int startIndex = imagePath.lastIndexOf("/") + 1;
             int endIndex = imagePath.lastIndexOf(".");
-            BufferedImage img = ImageIO.read(new File(imagePath));
-
-            int[] scaleImage = scaleImage(img.getWidth(), img.getHeight());
-
-            Image scaledImg = img.getScaledInstance(scaleImage[0], scaleImage[1], Image.SCALE_SMOOTH);
-            ImageIcon icon = new ImageIcon(scaledImg);
-
-            if (startIndex < 0 || endIndex < 0 || startIndex >= endIndex) {
+            if (startIndex >= endIndex) {
                 // Handle invalid path or file extension not found
                 description = imagePath;
+            } else {
+                description = imagePath.substring(startIndex, endIndex);
             }
-            button.setIcon(icon);
-            description = imagePath.substring(startIndex, endIndex);
-
-        } catch (IOException e) {
-            if (V2RApp.debug) {
-                System.err.println("Error loading image: " + imagePath + e.getMessage());
-            }
-        } finally {
-            button.setVerticalTextPosition(SwingConstants.BOTTOM);
-            button.setHorizontalTextPosition(SwingConstants.CENTER);
-            button.setText("<html><center>" + description + "</center></html>");
-            button.setToolTipText(description);
         }
+        button.setVerticalTextPosition(SwingConstants.BOTTOM);
+        button.setHorizontalTextPosition(SwingConstants.CENTER);
+        button.setText("<html><center>" + description + "</center></html>");
+        button.setToolTipText(description);
 
         return button;
     }
 
+    /**
+     * Loads the thumbnails of the buttons on a page and the pages next to it in the background, the page itself
+     * first. Each thumbnail is loaded once; the button shows it as soon as it is ready.
+     *
+     * @param page The page being displayed.
+     */
+    private void loadThumbnails(int page) {
+        for (int p : new int[]{page, page + 1, page - 1}) {
+            int start = Math.max(0, p * BUTTONS_PER_PAGE);
+            int end = Math.min((p + 1) * BUTTONS_PER_PAGE, btnLevels.size());
+            for (int i = start; i < end; i++) {
+                if (thumbnailRequested.get(i) || imagePaths.get(i) == null) {
+                    continue;
+                }
+                thumbnailRequested.set(i);
+                JButton button = btnLevels.get(i);
+                File image = new File(imagePaths.get(i));
+                THUMBNAILER.execute(() -> {
+                    BufferedImage thumbnail = ThumbnailCache.get(image);
+                    if (thumbnail != null) {
+                        SwingUtilities.invokeLater(() -> button.setIcon(new ImageIcon(thumbnail)));
+                    }
+                });
+            }
+        }
+    }
+
     /**
      * Triggers a {@code TriggerEvent} to all registered {@code TriggerListeners}. The event carries a message
      * that is used by the listeners to determine the appropriate action in response to the event.
@@ -194,6 +242,7 @@ public class LevelSelectPanel extends JPanel {
         for (int i = startIndex; i < endIndex; i++) {
             levelsPanel.add(btnLevels.get(i));
         }
+        loadThumbnails(page);
 
         // Add the panels to the main panel
         add(levelsPanel, BorderLayout.CENTER);
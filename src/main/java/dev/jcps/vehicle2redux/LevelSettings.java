@@ -0,0 +1,402 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The {@code LevelSettings} class holds the parameters of a level parsed and checked once, so that the game reads
+ * plain fields instead of looking up and parsing strings in {@link GameParams} while it runs.
+ * <p>
+ * Every value is checked when the settings are made. A missing or malformed number is replaced by its default from
+ * {@link GameParams#GameParams()}, and a number outside its range is moved to the nearest allowed value. Each
+ * problem is logged as a warning naming the key, and kept in {@link #getProblems()}, so a broken {@code .map} file
+ * shows up when the level is loaded rather than as a {@code NumberFormatException} in the middle of a game.
+ * </p>
+ * <p>
+ * <i>Note: The settings never change. Use {@link GameParams#getSettings()}, which makes them again only when the
+ * parameters have been changed.</i>
+ * </p>
+ *
+ * @see GameParams
+ * @since 1.0
+ */
+public class LevelSettings {
+    /**
+     * The values used when a key is missing or malformed.
+     */
+    private static final Map<String, String> DEFAULTS = new GameParams().paramMap;
+    /**
+     * The largest width or height of a level in pixels.
+     */
+    private static final int MAX_SIZE = 1 << 20;
+    /**
+     * The characters allowed in the name of a zone.
+     */
+    private static final Pattern ZONE_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    /**
+     * The path of the terrain data image ({@code Bild}), or {@code null} if it is not set.
+     */
+    final String image;
+    /**
+     * The path of the art of the level ({@code Bild_c}), or {@code null} if it is not set.
+     */
+    final String background;
+    /**
+     * The width of the level in pixels.
+     */
+    final int width;
+    /**
+     * The height of the level in pixels.
+     */
+    final int height;
+    /**
+     * The left edge of the goal area in pixels.
+     */
+    final int goalX;
+    /**
+     * The top edge of the goal area in pixels.
+     */
+    final int goalY;
+    /**
+     * The width of the goal area in pixels.
+     */
+    final int goalWidth;
+    /**
+     * The height of the goal area in pixels.
+     */
+    final int goalHeight;
+    /**
+     * The x-coordinate the vehicle starts at in pixels.
+     */
+    final int startX;
+    /**
+     * The y-coordinate the vehicle starts at in pixels.
+     */
+    final int startY;
+    /**
+     * The size of the vehicle in percent.
+     */
+    final int scaleSize;
+    /**
+     * The factor for all spring stiffnesses in percent.
+     */
+    final int scaleF;
+    /**
+     * The factor for all masses in percent.
+     */
+    final int scaleM;
+    /**
+     * The mass of the hook in hundredths.
+     */
+    final int mHook;
+    /**
+     * The mass of each rope node in hundredths.
+     */
+    final int mRope;
+    /**
+     * The mass of each rim node of the wheels in hundredths.
+     */
+    final int mWheels;
+    /**
+     * The mass of each wheel axis in hundredths.
+     */
+    final int mAxis;
+    /**
+     * The mass of the corpus in hundredths.
+     */
+    final int mCorpus;
+    /**
+     * The rest length of each rope segment, before scaling.
+     */
+    final int l0Rope;
+    /**
+     * The speed the hook is fired at, before scaling.
+     */
+    final int v0Rope;
+    /**
+     * The stiffness of a rope let out all the way.
+     */
+    final int fRopeMin;
+    /**
+     * The stiffness of a rope wound in all the way.
+     */
+    final int fRopeMax;
+    /**
+     * The stiffness of the springs of the wheels.
+     */
+    final int fWheels;
+    /**
+     * The stiffness of the springs between the axes and the corpus.
+     */
+    final int fCorpus;
+    /**
+     * The force the engine turns the wheels with.
+     */
+    final int fEngine;
+    /**
+     * The downward acceleration of the nodes in pixels per second squared ({@code Gravity}).
+     */
+    final int gravity;
+    /**
+     * The simulated time of one step in thousandths of a second.
+     */
+    final int dt;
+    /**
+     * The real time one step lasts in milliseconds.
+     */
+    final int delay;
+    /**
+     * The number of sub-steps each step is split into.
+     */
+    final int substeps;
+    /**
+     * How each step is computed.
+     */
+    final Integrator integrator;
+    /**
+     * The largest {@code k * dt^2 * (1/mA + 1/mB)} of a spring with the symplectic integrator in hundredths,
+     * or 0 for none.
+     */
+    final int springLimit;
+    /**
+     * Whether the vehicle collides through a distance field ({@code collision=sdf}).
+     */
+    final boolean distanceCollision;
+    /**
+     * The share of the impact speed bounced back with the distance field collision in percent.
+     */
+    final int bounce;
+    /**
+     * The share of the sliding speed lost on contact with the distance field collision in percent.
+     */
+    final int grip;
+    /**
+     * The memory the terrain may take in megabytes.
+     */
+    final int terrainBudget;
+    /**
+     * The share of its velocity a node keeps per step in air, in thousandths ({@code Reibung}).
+     */
+    final int friction;
+    /**
+     * The share of its velocity a node keeps per step in water, in thousandths ({@code ReibungW}).
+     */
+    final int frictionW;
+    /**
+     * The problems found, empty if the parameters were all right.
+     */
+    private final List<String> problems = new ArrayList<>();
+    /**
+     * The zones declared with {@code Zone.<name>} keys, indexed for lookups by position.
+     */
+    final ZoneGrid zones;
+
+    /**
+     * Parses and checks level parameters.
+     *
+     * @param values The parameters, as in {@link GameParams#paramMap}.
+     */
+    public LevelSettings(@NotNull Map<String, String> values) {
+        image = readString(values, GameParams.BILD);
+        background = readString(values, GameParams.BILD_C);
+        width = readInt(values, GameParams.BILD_W, 1, MAX_SIZE);
+        height = readInt(values, GameParams.BILD_H, 1, MAX_SIZE);
+
+        goalX = readInt(values, GameParams.GOAL_X, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        goalY = readInt(values, GameParams.GOAL_Y, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        goalWidth = readInt(values, GameParams.GOAL_WIDTH, 1, MAX_SIZE);
+        goalHeight = readInt(values, GameParams.GOAL_HEIGHT, 1, MAX_SIZE);
+        startX = readInt(values, GameParams.START_X, 0, width - 1);
+        startY = readInt(values, GameParams.START_Y, 0, height - 1);
+
+        scaleSize = readInt(values, GameParams.SCALE_SIZE, 1, 1000);
+        scaleF = readInt(values, GameParams.SCALE_F, 0, 1000);
+        scaleM = readInt(values, GameParams.SCALE_M, 1, 1000);
+
+        // A node without mass would divide by zero
+        mHook = readInt(values, GameParams.M_HOOK, 1, 100_000);
+        mRope = readInt(values, GameParams.M_ROPE, 1, 100_000);
+        mWheels = readInt(values, GameParams.M_WHEELS, 1, 100_000);
+        mAxis = readInt(values, GameParams.M_AXIS, 1, 100_000);
+        mCorpus = readInt(values, GameParams.M_CORPUS, 1, 100_000);
+
+        l0Rope = readInt(values, GameParams.L_0_ROPE, 0, 1000);
+        v0Rope = readInt(values, GameParams.V_0_ROPE, 0, 1_000_000);
+        fRopeMin = readInt(values, GameParams.F_ROPE_MIN, 0, 1_000_000);
+        fRopeMax = readInt(values, GameParams.F_ROPE_MAX, fRopeMin, 1_000_000);
+        fWheels = readInt(values, GameParams.F_WHEELS, 0, 1_000_000);
+        fCorpus = readInt(values, GameParams.F_CORPUS, 0, 1_000_000);
+        fEngine = readInt(values, GameParams.F_ENGINE, 0, 1_000_000);
+
+        gravity = readInt(values, GameParams.GRAVITY, -10_000, 10_000);
+        dt = readInt(values, GameParams.DT, 1, 1000);
+        delay = readInt(values, GameParams.DELAY, 1, 1000);
+        substeps = readInt(values, GameParams.SUBSTEPS, 1, 1000);
+        integrator = readIntegrator(values);
+        springLimit = readInt(values, GameParams.SPRING_LIMIT, 0, 400);
+        distanceCollision = readCollision(values);
+        bounce = readInt(values, GameParams.BOUNCE, 0, 100);
+        grip = readInt(values, GameParams.GRIP, 0, 100);
+        terrainBudget = readInt(values, GameParams.TERRAIN_BUDGET, 1, 1 << 20);
+        friction = readInt(values, GameParams.REIBUNG, 0, 1000);
+        frictionW = readInt(values, GameParams.REIBUNG_W, 0, 1000);
+        zones = new ZoneGrid(readZones(values), width, height);
+    }
+
+    /**
+     * Returns the problems found in the parameters.
+     *
+     * @return One message per problem; empty if there were none.
+     */
+    public @NotNull List<String> getProblems() {
+        return Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * Checks whether a point lies in the goal area.
+     *
+     * @param x The x-coordinate to check.
+     * @param y The y-coordinate to check.
+     * @return {@code true} if the point is inside the goal.
+     */
+    public boolean isInGoal(int x, int y) {
+        return x >= goalX && x < goalX + goalWidth && y >= goalY && y < goalY + goalHeight;
+    }
+
+    /**
+     * Reads an integer, using the default if it is missing or malformed and clamping it to its range.
+     *
+     * @param values The parameters.
+     * @param key    The key.
+     * @param min    The smallest value allowed.
+     * @param max    The largest value allowed.
+     * @return The value.
+     */
+    private int readInt(@NotNull Map<String, String> values, @NotNull String key, int min, int max) {
+        String value = values.get(key);
+        int result;
+        if (value == null) {
+            result = Integer.parseInt(DEFAULTS.get(key));
+            report("{} is missing, using {}", key, result);
+        } else {
+            try {
+                result = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                result = Integer.parseInt(DEFAULTS.get(key));
+                report("{}={} is not a whole number, using {}", key, value, result);
+            }
+        }
+        if (result < min || result > max) {
+            int clamped = Math.max(min, Math.min(max, result));
+            report("{}={} is outside {}..{}, using {}", key, result, min, max, clamped);
+            result = clamped;
+        }
+        return result;
+    }
+
+    /**
+     * Reads a string that has no default, such as the path of an image.
+     *
+     * @param values The parameters.
+     * @param key    The key.
+     * @return The value, or {@code null} if it is missing.
+     */
+    private @Nullable String readString(@NotNull Map<String, String> values, @NotNull String key) {
+        String value = values.get(key);
+        if (value == null || value.isBlank()) {
+            report("{} is missing", key);
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * Reads the zones, in the order of their names. A zone that cannot be read is reported and left out.
+     *
+     * @param values The parameters.
+     * @return The zones.
+     */
+    private @NotNull List<Zone> readZones(@NotNull Map<String, String> values) {
+        List<Zone> result = new ArrayList<>();
+        List<String> keys = values.keySet().stream()
+                .filter(key -> key.startsWith(GameParams.ZONE_PREFIX))
+                .sorted()
+                .toList();
+        for (String key : keys) {
+            String name = key.substring(GameParams.ZONE_PREFIX.length());
+            String value = values.get(key);
+            if (!ZONE_NAME.matcher(name).matches()) {
+                report("{} has a name that is not only letters, digits, '_' and '-', left out", key);
+                continue;
+            }
+            String[] parts = value.trim().split("\\s+");
+            if (parts.length != 5 && parts.length != 7) {
+                report("{}={} is not <type> <x> <y> <width> <height> [<from> <until>], left out", key, value);
+                continue;
+            }
+            try {
+                Zone.Type type = Zone.Type.fromName(parts[0]);
+                int x = Integer.parseInt(parts[1]);
+                int y = Integer.parseInt(parts[2]);
+                int w = Integer.parseInt(parts[3]);
+                int h = Integer.parseInt(parts[4]);
+                long from = parts.length == 7 ? Math.round(Double.parseDouble(parts[5]) * 1000) : 0;
+                long until = parts.length == 7 ? Math.round(Double.parseDouble(parts[6]) * 1000) : Long.MAX_VALUE;
+                if (w < 1 || h < 1 || w > MAX_SIZE || h > MAX_SIZE || from >= until) {
+                    report("{}={} has an empty size or time, left out", key, value);
+                    continue;
+                }
+                result.add(new Zone(name, type, x, y, w, h, from, until));
+            } catch (IllegalArgumentException e) {
+                report("{}={} has a bad type or number, left out", key, value);
+            }
+        }
+        return result;
+    }
+
+    private @NotNull Integrator readIntegrator(@NotNull Map<String, String> values) {
+        String value = values.get(GameParams.INTEGRATOR);
+        if (value == null || value.isBlank()) {
+            return Integrator.LEGACY;
+        }
+        try {
+            return Integrator.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            report("{}={} is not a known integrator, using {}", GameParams.INTEGRATOR, value, Integrator.LEGACY);
+            return Integrator.LEGACY;
+        }
+    }
+
+    private boolean readCollision(@NotNull Map<String, String> values) {
+        String value = values.get(GameParams.COLLISION);
+        if (value == null || value.isBlank() || "terrain".equalsIgnoreCase(value.trim())) {
+            return false;
+        }
+        if ("sdf".equalsIgnoreCase(value.trim())) {
+            return true;
+        }
+        report("{}={} is neither terrain nor sdf, using terrain", GameParams.COLLISION, value);
+        return false;
+    }
+
+    /**
+     * Logs a problem and keeps it.
+     *
+     * @param format    The message, with a {@code {}} for each argument.
+     * @param arguments The arguments.
+     */
+    private void report(@NotNull String format, Object... arguments) {
+        String message = MessageFormatter.arrayFormat(format, arguments).getMessage();
+        V2RApp.logger.warn("Level parameter {}", message);
+        problems.add(message);
+    }
+}
@@ -8,7 +8,12 @@ import java.io.RandomAccessFile;
 import java.net.URI;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A utility class providing static methods for handling levels and maps.
@@ -18,11 +23,17 @@ import java.util.regex.Pattern;
  * @since 1.0
  */
 public class LevelUtilities {
+    /**
+     * The number of threads parsing level files at the same time.
+     */
+    private static final int PARSE_THREADS = 8;
+
     /**
      * Retrieves a list of level filenames present in the "Levels" directory of the game's root folder.
      * This method helps in dynamically loading the level files available in the game.
      *
-     * @return An {@code ArrayList} containing the filenames of all level files found in the "Levels" directory.
+     * @return An {@code ArrayList} containing the filenames of all level files found in the "Levels" directory,
+     * sorted by name regardless of case.
      */
     private static @NotNull ArrayList<String> getLevelList() {
         ArrayList<String> list = new ArrayList<>();
@@ -58,6 +69,8 @@ public class LevelUtilities {
                 }
             }
         }
+        // The directory lists its files in no particular order; sort them so the levels always come in the same order
+        list.sort(String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder()));
         return list;
     }
 
@@ -106,15 +119,42 @@ public class LevelUtilities {
      * @return an {@code ArrayList} of {@code LevelMap} objects; the list might be empty if no level files are found in the directory.
      */
     public static @NotNull ArrayList<LevelMap> getLevelMaps() {
+        return streamLevelMaps().collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Returns the {@code LevelMap}s of the level files in the "Levels" directory as they are parsed.
+     * <p>
+     * All files are parsed at once by a small pool of threads, but the stream keeps the order of the files by name:
+     * each map is handed out as soon as it and the ones before it have been parsed, so the first levels can be
+     * used while the rest are still being read.
+     * </p>
+     * <p>
+     * <i>Note: Consuming the stream blocks while the next map is parsed, so it should not be consumed on the event
+     * dispatch thread.</i>
+     * </p>
+     *
+     * @return An ordered, sequential stream of the maps; empty if no level files are found in the directory.
+     */
+    public static @NotNull Stream<LevelMap> streamLevelMaps() {
         ArrayList<String> files = getLevelList();
-        ArrayList<LevelMap> maps = new ArrayList<>();
         if (V2RApp.debug) V2RApp.logger.info("Map Files Loaded:");
-        for (Object s : files) {
-            if (V2RApp.debug) V2RApp.logger.info("Loading: {}", s);
-            LevelMap map = new LevelMap("Levels/" + s);
-            maps.add(map);
+        ExecutorService parser = Executors.newFixedThreadPool(Math.max(1, Math.min(PARSE_THREADS, files.size())),
+                r -> {
+                    Thread thread = new Thread(r, "level-parse");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        List<CompletableFuture<LevelMap>> pending = new ArrayList<>(files.size());
+        for (String s : files) {
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                if (V2RApp.debug) V2RApp.logger.info("Loading: {}", s);
+                return new LevelMap("Levels/" + s);
+            }, parser));
         }
-        return maps;
+        // The tasks already submitted still run; the threads end when they are done
+        parser.shutdown();
+        return pending.stream().map(CompletableFuture::join);
     }
 
     /**
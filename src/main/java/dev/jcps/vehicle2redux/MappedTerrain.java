@@ -0,0 +1,80 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code MappedTerrain} class reads a terrain straight from a memory-mapped {@link TerrainCache} file.
+ * <p>
+ * The codes are laid out like in {@link PackedTerrain}: 4 bits per pixel, two pixels per byte, row by row.
+ * Nothing is copied onto the heap; the operating system reads the pages of the file as they are touched and
+ * keeps them shared between all simulations of the level.
+ * </p>
+ * <p>
+ * <i>Note: Only absolute reads are made on the buffer, so it may be used by several threads at once. A code that is
+ * not a terrain type, which only a damaged file can hold, reads as 'F'.</i>
+ * </p>
+ *
+ * @see TerrainCache
+ * @since 1.0
+ */
+public class MappedTerrain extends Terrain {
+    /**
+     * The packed codes, starting at index 0.
+     */
+    private final ByteBuffer cells;
+    /**
+     * The number of bytes per row of {@link #cells}.
+     */
+    private final int stride;
+    /**
+     * Whether a code that is not a terrain type has been read, so that it is only reported once.
+     */
+    private volatile boolean damaged = false;
+
+    /**
+     * Constructs a {@code MappedTerrain} over a buffer of packed codes.
+     *
+     * @param cells  The packed codes, {@code (width + 1) / 2} bytes per row.
+     * @param width  The width of the terrain in pixels.
+     * @param height The height of the terrain in pixels.
+     */
+    MappedTerrain(@NotNull ByteBuffer cells, int width, int height) {
+        super(width, height);
+        this.cells = cells;
+        this.stride = (width + 1) >> 1;
+    }
+
+    /**
+     * Returns the heap memory the terrain takes: only its distance field, as the codes are in the page cache of
+     * the operating system, which drops them by itself when memory is short.
+     *
+     * @return The size in bytes.
+     */
+    @Override
+    public long getMemoryBytes() {
+        return getDistanceFieldBytes();
+    }
+
+    @Override
+    int code(int x, int y) {
+        int code = (cells.get(y * stride + (x >> 1)) >> ((x & 1) << 2)) & 0xF;
+        return code < TYPES.length ? code : reportDamage(x, y);
+    }
+
+    /**
+     * Reports a code that is not a terrain type the first time one is read.
+     *
+     * @param x The x-coordinate of the pixel.
+     * @param y The y-coordinate of the pixel.
+     * @return The code of 'F'.
+     */
+    private int reportDamage(int x, int y) {
+        if (!damaged) {
+            damaged = true;
+            V2RApp.logger.warn("Terrain cache is damaged at {},{}; delete its .terrain file to rebuild it", x, y);
+        }
+        return 0;
+    }
+}
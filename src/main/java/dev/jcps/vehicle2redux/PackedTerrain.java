@@ -0,0 +1,106 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The {@code PackedTerrain} class holds the whole terrain of a level in memory.
+ * <p>
+ * The characters are stored as 4-bit codes, two pixels per byte, in one flat array row by row. A 1600x1200 level
+ * takes under 1 MB this way instead of almost 4 MB of {@code char} columns, and neighbouring pixels of a row share
+ * a cache line. Pixels that have not been set read as 'F'.
+ * </p>
+ *
+ * @see TerrainLoader
+ * @since 1.0
+ */
+public class PackedTerrain extends Terrain {
+    /**
+     * The packed codes, two pixels per byte (the even x in the low nibble), {@link #stride} bytes per row.
+     */
+    final byte[] cells;
+    /**
+     * The number of bytes per row of {@link #cells}.
+     */
+    private final int stride;
+
+    /**
+     * Constructs an empty {@code PackedTerrain} of the given size.
+     *
+     * @param width  The width of the terrain in pixels.
+     * @param height The height of the terrain in pixels.
+     */
+    public PackedTerrain(int width, int height) {
+        super(width, height);
+        this.stride = (width + 1) >> 1;
+        this.cells = new byte[stride * height];
+    }
+
+    /**
+     * Sets the terrain character of a pixel.
+     * <p>
+     * <i>Note: Two pixels share a byte, so threads setting pixels of the same row at the same time must
+     * synchronize on {@link #cells}. Use {@link #setRow(int, byte[])} to fill the terrain in parallel.</i>
+     * </p>
+     *
+     * @param x The x-coordinate of the pixel.
+     * @param y The y-coordinate of the pixel.
+     * @param c The terrain character, one of {@code l w e f E F}.
+     * @throws IllegalArgumentException If the character is not a terrain character.
+     */
+    void set(int x, int y, char c) {
+        int code = codeOf(c);
+        int i = y * stride + (x >> 1);
+        int shift = (x & 1) << 2;
+        cells[i] = (byte) ((cells[i] & ~(0xF << shift)) | (code << shift));
+    }
+
+    /**
+     * Sets a whole row from an array of codes. Rows do not share bytes, so different threads may set different
+     * rows at the same time without locking.
+     *
+     * @param y     The row.
+     * @param codes The code of each pixel of the row, at least {@code width} entries.
+     */
+    void setRow(int y, byte @NotNull [] codes) {
+        final int width = getWidth();
+        final int row = y * stride;
+        int x = 0;
+        for (; x + 1 < width; x += 2) {
+            cells[row + (x >> 1)] = (byte) (codes[x] | (codes[x + 1] << 4));
+        }
+        if (x < width) {
+            cells[row + (x >> 1)] = codes[x];
+        }
+    }
+
+    @Override
+    int code(int x, int y) {
+        return (cells[y * stride + (x >> 1)] >> ((x & 1) << 2)) & 0xF;
+    }
+
+    @Override
+    public void getRow(int y, int x, int length, char @NotNull [] out) {
+        if (y < 0 || y >= getHeight() || x < 0 || x + length > getWidth()) {
+            super.getRow(y, x, length, out);
+            return;
+        }
+        int row = y * stride;
+        for (int i = 0; i < length; i++) {
+            int px = x + i;
+            out[i] = TYPES[(cells[row + (px >> 1)] >> ((px & 1) << 2)) & 0xF];
+        }
+    }
+
+    @Override
+    public void getColumn(int x, int y, int length, char @NotNull [] out) {
+        if (x < 0 || x >= getWidth() || y < 0 || y + length > getHeight()) {
+            super.getColumn(x, y, length, out);
+            return;
+        }
+        int i0 = y * stride + (x >> 1);
+        int shift = (x & 1) << 2;
+        for (int i = 0; i < length; i++) {
+            out[i] = TYPES[(cells[i0 + i * stride] >> shift) & 0xF];
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package dev.jcps.vehicle2redux;
+
+import java.awt.*;
+
+/**
+ * The {@code PhysicsState} class stores the mass-spring model of a vehicle as parallel primitive arrays.
+ * <p>
+ * Every node (connector) is addressed by its index into the node arrays, and every spring (vehicle part)
+ * by its index into the spring arrays. Keeping each attribute in its own array lets the physics loops run
+ * over contiguous memory instead of chasing one object per connector and per spring.
+ * </p>
+ * <p>
+ * <i>Note: Springs store the indices of the two nodes they connect, so nodes must be added before the
+ * springs that reference them.</i>
+ * </p>
+ *
+ * @since 1.0
+ */
+public class PhysicsState {
+    /**
+     * The x-coordinate of each node.
+     */
+    final double[] x;
+    /**
+     * The y-coordinate of each node.
+     */
+    final double[] y;
+    /**
+     * The horizontal velocity of each node.
+     */
+    final double[] vx;
+    /**
+     * The vertical velocity of each node.
+     */
+    final double[] vy;
+    /**
+     * The x-coordinate of each node at the start of the current step, used to undo moves and derive velocities.
+     */
+    final double[] lastX;
+    /**
+     * The y-coordinate of each node at the start of the current step, used to undo moves and derive velocities.
+     */
+    final double[] lastY;
+    /**
+     * The mass of each node.
+     */
+    final double[] mass;
+    /**
+     * The inverse of the mass of each node, so forces can be scaled with a multiplication.
+     */
+    final double[] invMass;
+    /**
+     * Whether each node takes part in the simulation and is drawn.
+     */
+    final boolean[] nodeActive;
+    /**
+     * The colour each node is drawn with.
+     */
+    final Color[] nodeColor;
+    /**
+     * The index of the first node of each spring.
+     */
+    final int[] springA;
+    /**
+     * The index of the second node of each spring.
+     */
+    final int[] springB;
+    /**
+     * The stiffness (Hooke constant) of each spring.
+     */
+    final double[] stiffness;
+    /**
+     * The rest length of each spring.
+     */
+    final double[] restLength;
+    /**
+     * Whether each spring applies force and is drawn.
+     */
+    final boolean[] springActive;
+    /**
+     * The colour each spring is drawn with.
+     */
+    final Color[] springColor;
+    /**
+     * The Hooke force of each spring in the current sub-step, positive when stretched. Written by a
+     * {@link SpringKernel}.
+     */
+    final double[] springForce;
+    /**
+     * The x-component of the unit vector from the second to the first node of each spring in the current sub-step.
+     * Written by a {@link SpringKernel}.
+     */
+    final double[] springDirX;
+    /**
+     * The y-component of the unit vector from the second to the first node of each spring in the current sub-step.
+     * Written by a {@link SpringKernel}.
+     */
+    final double[] springDirY;
+    /**
+     * The number of nodes added so far.
+     */
+    int nodeCount;
+    /**
+     * The number of springs added so far.
+     */
+    int springCount;
+
+    /**
+     * Constructs an empty {@code PhysicsState} able to hold the given number of nodes and springs.
+     *
+     * @param maxNodes   The maximum number of nodes.
+     * @param maxSprings The maximum number of springs.
+     */
+    public PhysicsState(int maxNodes, int maxSprings) {
+        x = new double[maxNodes];
+        y = new double[maxNodes];
+        vx = new double[maxNodes];
+        vy = new double[maxNodes];
+        lastX = new double[maxNodes];
+        lastY = new double[maxNodes];
+        mass = new double[maxNodes];
+        invMass = new double[maxNodes];
+        nodeActive = new boolean[maxNodes];
+        nodeColor = new Color[maxNodes];
+        springA = new int[maxSprings];
+        springB = new int[maxSprings];
+        stiffness = new double[maxSprings];
+        restLength = new double[maxSprings];
+        springActive = new boolean[maxSprings];
+        springColor = new Color[maxSprings];
+        springForce = new double[maxSprings];
+        springDirX = new double[maxSprings];
+        springDirY = new double[maxSprings];
+    }
+
+    /**
+     * Adds an active node at rest.
+     *
+     * @param x     The initial x-coordinate of the node.
+     * @param y     The initial y-coordinate of the node.
+     * @param mass  The mass of the node.
+     * @param color The colour of the node.
+     * @return The index of the new node.
+     */
+    public int addNode(double x, double y, double mass, Color color) {
+        int n = nodeCount++;
+        this.x[n] = x;
+        this.y[n] = y;
+        this.vx[n] = 0.0;
+        this.vy[n] = 0.0;
+        this.mass[n] = mass;
+        this.invMass[n] = 1.0 / mass;
+        this.nodeActive[n] = true;
+        this.nodeColor[n] = color;
+        return n;
+    }
+
+    /**
+     * Adds an active spring between two existing nodes. The rest length is the current distance between the nodes.
+     *
+     * @param a         The index of the first node.
+     * @param b         The index of the second node.
+     * @param stiffness The stiffness of the spring.
+     * @param color     The colour of the spring.
+     * @return The index of the new spring.
+     */
+    public int addSpring(int a, int b, double stiffness, Color color) {
+        int s = springCount++;
+        springA[s] = a;
+        springB[s] = b;
+        this.stiffness[s] = stiffness;
+        double dx = x[a] - x[b];
+        double dy = y[a] - y[b];
+        restLength[s] = Math.sqrt(dx * dx + dy * dy);
+        springActive[s] = true;
+        springColor[s] = color;
+        return s;
+    }
+
+    /**
+     * Sets the mass of an existing node.
+     *
+     * @param n    The index of the node.
+     * @param mass The new mass of the node.
+     */
+    public void setMass(int n, double mass) {
+        this.mass[n] = mass;
+        invMass[n] = 1.0 / mass;
+    }
+}
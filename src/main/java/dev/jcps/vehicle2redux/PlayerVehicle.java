@@ -0,0 +1,215 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+
+/**
+ * Represents the player-controlled vehicle with various attributes such as mass, forces, and parts.
+ * <p>
+ * The vehicle is two wheels, each a rim of 10 nodes around an axis node, joined by a triangular body to a corpus node.
+ * Two ropes of 10 nodes each hang from the corpus node; they are inactive until fired.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class PlayerVehicle {
+    /**
+     * The maximum number of connectors (nodes) in the vehicle.
+     */
+    private static final int MAX_CONNECTORS = 43;
+    /**
+     * The maximum number of parts (springs) in the vehicle.
+     */
+    private static final int MAX_PARTS = 83;
+    int pCounter; // Index of the corpus node, where the turret and ropes are attached.
+    boolean[] activeRope = new boolean[2]; // Array indicating the activity state of rope segments.
+    boolean[] inactiveRope = new boolean[2]; // Array indicating the inactivity state of rope segments.
+    double turretAngle = -1.5707963267948966; // The angle of the turret.
+    double buoyancy = 1.0; // The buoyancy factor of the player vehicle.
+    double mHook;
+    double mRope;
+    double mWheels;
+    double mAxis;
+    double mCorpus;
+    double ropeMin; // Minimum length of the rope connected to the player vehicle.
+    double ropeMax; // Maximum length of the rope connected to the player vehicle.
+    double fWheels;
+    double fCorpus;
+    double fEngine; // Engine's output torque
+    double v0Rope;
+    int ropeSlot = 0; // Current selected rope slot.
+    int[] ropeSegments = new int[2]; // Index of the first node of each rope.
+    int[] ropeAnchor = new int[2]; // Index of the first spring of each rope.
+    int maxRopeSegments = 10; // breaks code above 10
+    final PhysicsState body; // Nodes and springs of the vehicle: springs 60,61,62 make the red body
+
+    /**
+     * Constructs a PlayerVehicle from the level parameters and places it at the level's start position.
+     *
+     * @param gp    The level parameters.
+     * @param world The world parameters derived from {@code gp}.
+     */
+    public PlayerVehicle(@NotNull GameParams gp, @NotNull WorldParameters world) {
+        body = new PhysicsState(MAX_CONNECTORS, MAX_PARTS);
+        LevelSettings settings = gp.getSettings();
+        mHook = 0.01 * settings.mHook;
+        mRope = 0.01 * settings.mRope;
+        mWheels = 0.01 * settings.mWheels;
+        mAxis = 0.01 * settings.mAxis;
+        mCorpus = 0.01 * settings.mCorpus;
+        ropeMin = world.scaleF * settings.fRopeMin;
+        ropeMax = world.scaleF * settings.fRopeMax;
+        fWheels = settings.fWheels;
+        fCorpus = settings.fCorpus;
+        fEngine = 0.1 * world.scaleSize * world.dt * settings.fEngine;
+        v0Rope = settings.v0Rope;
+        build(gp, world);
+    }
+
+    /**
+     * Creates the nodes and springs of the vehicle, then scales and moves them to the start position.
+     *
+     * @param gp    The level parameters.
+     * @param world The world parameters derived from {@code gp}.
+     */
+    private void build(@NotNull GameParams gp, @NotNull WorldParameters world) {
+        LevelSettings settings = gp.getSettings();
+        // Initialize variables for positioning and dimensions
+        int partIndex;
+        int ropeSegmentOffset = 40;
+        int axisOffset;
+        double axisPosition = 0.0;
+        double corpusPosition = 0.0;
+
+        // Define color values
+        Color greenColor = new Color(0, 150, 0);
+        Color orangeColor = new Color(255, 200, 50);
+        Color redColor = new Color(255, 0, 0);
+
+        // Create vehicle parts and connectors
+        for (axisOffset = 0; axisOffset < 2; axisOffset++) {
+            double xPartOffset = axisPosition + (axisOffset * 80);
+            for (partIndex = 0; partIndex < maxRopeSegments; partIndex++) {
+                double angleIncrement = Math.PI * (partIndex / 5.0);
+                body.addNode(xPartOffset + ropeSegmentOffset * Math.cos(angleIncrement),
+                        corpusPosition + ropeSegmentOffset * Math.sin(angleIncrement),
+                        mWheels * world.scaleM, greenColor);
+            }
+            processRopeSegs(axisOffset, world.scaleF * fWheels, orangeColor);
+            int axis = body.addNode(xPartOffset, corpusPosition, world.scaleM * mAxis, greenColor);
+            for (partIndex = 0; partIndex < maxRopeSegments; partIndex++) {
+                body.addSpring(partIndex + 11 * axisOffset, axis, world.scaleF * fWheels, orangeColor);
+            }
+
+        }
+        pCounter = body.addNode(axisPosition + 40.0, corpusPosition, world.scaleM * mCorpus, greenColor);
+        body.addSpring(10, pCounter, world.scaleF * fCorpus, redColor);
+        body.addSpring(21, pCounter, world.scaleF * fCorpus, redColor);
+        body.addSpring(10, 21, world.scaleF * fCorpus, redColor);
+
+        // Add both ropes, hidden until fired
+        double ropeRestLength = world.scaleSize * settings.l0Rope;
+        processRope(0, world, ropeRestLength, greenColor, new Color(0, 80, 185));
+        processRope(1, world, ropeRestLength, greenColor, new Color(70, 170, 255));
+
+        // Adjust positions and scales
+        for (partIndex = 0; partIndex < body.nodeCount; partIndex++) {
+            body.x[partIndex] = body.x[partIndex] * world.scaleSize + settings.startX;
+            body.y[partIndex] = body.y[partIndex] * world.scaleSize + settings.startY;
+        }
+        for (partIndex = 0; partIndex < body.springCount; partIndex++) {
+            body.restLength[partIndex] *= world.scaleSize;
+        }
+    }
+
+    /**
+     * Adds the springs forming the rim of one wheel.
+     *
+     * @param axisOffset  The wheel index (0 or 1).
+     * @param stiffness   The stiffness of the wheel springs.
+     * @param orangeColor The color of the wheel springs.
+     */
+    private void processRopeSegs(int axisOffset, double stiffness, Color orangeColor) {
+        for (int partIndex = 0; partIndex < maxRopeSegments; partIndex++) {
+            body.addSpring(partIndex + 11 * axisOffset, (partIndex + 1) % maxRopeSegments + 11 * axisOffset,
+                    stiffness, orangeColor);
+            body.addSpring(partIndex + 11 * axisOffset, (partIndex + 3) % maxRopeSegments + 11 * axisOffset,
+                    stiffness, orangeColor);
+        }
+    }
+
+    /**
+     * Adds the nodes and springs of one rope. The rope starts inactive and is activated when it is fired.
+     *
+     * @param slot       The rope slot (0 or 1).
+     * @param world      The world parameters.
+     * @param restLength The rest length of each rope segment before scaling.
+     * @param nodeColor  The color of the rope nodes.
+     * @param ropeColor  The color of the rope springs.
+     */
+    private void processRope(int slot, WorldParameters world, double restLength, Color nodeColor, Color ropeColor) {
+        ropeSegments[slot] = body.nodeCount;
+        ropeAnchor[slot] = body.springCount;
+        for (int partIndex = 0; partIndex < maxRopeSegments; partIndex++) {
+            int node = processPart(partIndex, world, nodeColor);
+            int spring = body.addSpring(partIndex == 0 ? pCounter : node - 1, node, ropeMin, ropeColor);
+            body.restLength[spring] = restLength;
+            body.springActive[spring] = false;
+        }
+    }
+
+    /**
+     * Processes a rope part and adds its node to the vehicle body.
+     *
+     * @param coOrd Starting co-ordinate.
+     * @param world The world parameters.
+     * @param color The color of the vehicle part.
+     * @return The index of the new node.
+     */
+    private int processPart(int coOrd, WorldParameters world, Color color) {
+        int node = body.addNode(coOrd, coOrd, mRope * world.scaleM, color);
+        if (coOrd == maxRopeSegments - 1) {
+            body.setMass(node, world.scaleM * mHook);
+        }
+        body.nodeActive[node] = false;
+        return node;
+    }
+
+    /**
+     * Returns the index of the hook node (the last node) of a rope.
+     *
+     * @param slot The rope slot (0 or 1).
+     * @return The node index of the hook.
+     */
+    int hookNode(int slot) {
+        return ropeSegments[slot] + maxRopeSegments - 1;
+    }
+
+    /**
+     * Returns the nodes and springs of the vehicle.
+     *
+     * @return The physics state of the vehicle.
+     */
+    public PhysicsState getBody() {
+        return body;
+    }
+
+    /**
+     * Returns the index of the corpus node, where the turret and ropes are attached.
+     *
+     * @return The corpus node index.
+     */
+    public int getCorpusNode() {
+        return pCounter;
+    }
+
+    /**
+     * Returns the angle of the turret.
+     *
+     * @return The turret angle in radians.
+     */
+    public double getTurretAngle() {
+        return turretAngle;
+    }
+}
@@ -0,0 +1,69 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The {@code ScalarSpringKernel} computes the springs one at a time with plain Java arithmetic.
+ * It is the reference the other kernels are checked against and the fallback when they are not available.
+ *
+ * @see SpringKernel
+ * @since 1.0
+ */
+public final class ScalarSpringKernel implements SpringKernel {
+    /**
+     * The shared instance; the kernel has no state.
+     */
+    public static final ScalarSpringKernel INSTANCE = new ScalarSpringKernel();
+
+    private ScalarSpringKernel() {
+    }
+
+    @Override
+    public void computeForces(@NotNull PhysicsState body, double stiffnessLimit) {
+        computeRange(body, stiffnessLimit, 0, body.springCount);
+    }
+
+    @Override
+    public @NotNull String name() {
+        return "scalar";
+    }
+
+    /**
+     * Computes the active springs from {@code from} (inclusive) to {@code to} (exclusive). Also used by the other
+     * kernels for the springs left over after their last full batch.
+     *
+     * @param body           The nodes and springs.
+     * @param stiffnessLimit See {@link SpringKernel#computeForces(PhysicsState, double)}.
+     * @param from           The first spring.
+     * @param to             The end of the range.
+     */
+    static void computeRange(@NotNull PhysicsState body, double stiffnessLimit, int from, int to) {
+        final double[] px = body.x;
+        final double[] py = body.y;
+        final double[] invMass = body.invMass;
+        final int[] springA = body.springA;
+        final int[] springB = body.springB;
+        final double[] stiffness = body.stiffness;
+        final double[] restLength = body.restLength;
+        final boolean[] springActive = body.springActive;
+        final double[] force = body.springForce;
+        final double[] dirX = body.springDirX;
+        final double[] dirY = body.springDirY;
+        for (int n = from; n < to; n++) {
+            if (springActive[n]) {
+                int a = springA[n];
+                int b = springB[n];
+                double k = stiffness[n];
+                if (stiffnessLimit > 0.0) {
+                    k = Math.min(k, stiffnessLimit / (invMass[a] + invMass[b]));
+                }
+                double dx = px[a] - px[b];
+                double dy = py[a] - py[b];
+                double len = Math.sqrt(dx * dx + dy * dy);
+                force[n] = k * (len - restLength[n]);
+                dirX[n] = dx / len;
+                dirY[n] = dy / len;
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+
+/**
+ * The {@code ScenePainter} class draws one frame of a level: the background, the vehicle, its turret and the
+ * heads-up display.
+ * <p>
+ * The game window and the {@link FrameExporter} both draw their frames with it, so exported frames look exactly
+ * like the game. The caller interpolates the node positions and places the viewport; the painter only draws.
+ * </p>
+ * <p>
+ * <i>Note: The GitHub link is not part of the scene; the game window draws it on top with {@link #getHud()}.</i>
+ * </p>
+ *
+ * @see Vehicle2
+ * @see FrameExporter
+ * @since 1.0
+ */
+public class ScenePainter {
+    /**
+     * The node of the axis of the first wheel. The goal countdown is shown above the two axes.
+     */
+    private static final int FIRST_AXIS = 10;
+    /**
+     * The node of the axis of the second wheel.
+     */
+    private static final int SECOND_AXIS = 21;
+    /**
+     * The width of the frames.
+     */
+    private final int width;
+    /**
+     * The height of the frames.
+     */
+    private final int height;
+    /**
+     * The width of the level.
+     */
+    private final int levelWidth;
+    /**
+     * The height of the level.
+     */
+    private final int levelHeight;
+    /**
+     * Follows the camera over the background image, or {@code null} if the level has none.
+     */
+    private final ScrollingBackground background;
+    /**
+     * Draws the vehicle with one draw call per color.
+     */
+    private final VehicleRenderer vehicleRenderer = new VehicleRenderer();
+    /**
+     * Draws the heads-up display from cached text images.
+     */
+    private final HudRenderer hudRenderer = new HudRenderer();
+
+    /**
+     * Constructs a {@code ScenePainter} for one level.
+     *
+     * @param backgroundImage The art of the level, or {@code null} to draw on white.
+     * @param width           The width of the frames.
+     * @param height          The height of the frames.
+     * @param levelWidth      The width of the level.
+     * @param levelHeight     The height of the level.
+     * @param config          The graphics configuration the frames are shown on, or {@code null} if unknown.
+     */
+    public ScenePainter(@Nullable Image backgroundImage, int width, int height, int levelWidth, int levelHeight,
+                        @Nullable GraphicsConfiguration config) {
+        this.width = width;
+        this.height = height;
+        this.levelWidth = levelWidth;
+        this.levelHeight = levelHeight;
+        this.background = backgroundImage != null ?
+                new ScrollingBackground(backgroundImage, width, height, config) : null;
+    }
+
+    /**
+     * Returns the left edge of the viewport for a camera position, kept inside the level.
+     *
+     * @param cameraX The x-coordinate of the camera.
+     * @return The x-coordinate of the top-left corner of the visible part of the level.
+     */
+    public int viewportX(double cameraX) {
+        int viewportX = (int) cameraX;
+        if (viewportX < 0) {
+            return 0;
+        }
+        return Math.min(viewportX, levelWidth - width);
+    }
+
+    /**
+     * Returns the top edge of the viewport for a camera position, kept inside the level.
+     *
+     * @param cameraY The y-coordinate of the camera.
+     * @return The y-coordinate of the top-left corner of the visible part of the level.
+     */
+    public int viewportY(double cameraY) {
+        int viewportY = (int) cameraY;
+        if (viewportY < 0) {
+            return 0;
+        }
+        return Math.min(viewportY, levelHeight - height);
+    }
+
+    /**
+     * Draws a frame.
+     *
+     * @param g           The graphics to draw with.
+     * @param snapshot    The state of the level.
+     * @param px          The x-coordinates of the nodes as drawn, which may lie between two steps.
+     * @param py          The y-coordinates of the nodes as drawn.
+     * @param turretAngle The turret angle as drawn.
+     * @param viewportX   The left edge of the visible part of the level.
+     * @param viewportY   The top edge of the visible part of the level.
+     * @param message     The zone message to show below the level time, or {@code null} for none.
+     */
+    public void draw(@NotNull Graphics2D g, @NotNull VehicleSnapshot snapshot, double @NotNull [] px,
+                     double @NotNull [] py, double turretAngle, int viewportX, int viewportY,
+                     @Nullable String message) {
+        final int c = snapshot.corpusNode;
+        if (background != null) {
+            background.draw(g, viewportX, viewportY);
+        } else {
+            g.setColor(Color.white);
+            g.fillRect(0, 0, width, height);
+        }
+        vehicleRenderer.add(snapshot, px, py, viewportX, viewportY);
+        vehicleRenderer.draw(g);
+        g.setColor(Color.black);
+        g.drawLine((int) px[c] - viewportX, (int) py[c] - viewportY,
+                (int) (px[c] - viewportX + 10.0 * Math.cos(turretAngle)),
+                (int) (py[c] - viewportY + 10.0 * Math.sin(turretAngle)));
+
+        hudRenderer.drawTime(g, snapshot.elapsedMillis / 1000);
+        if (message != null) {
+            hudRenderer.drawMessage(g, message);
+        }
+        if (snapshot.insideGoal) {
+            // Above the higher of the two axes, ending at the one further right
+            int x = (int) Math.max(px[FIRST_AXIS], px[SECOND_AXIS]) - 1 - viewportX - 80;
+            int y = (int) (Math.min(py[FIRST_AXIS], py[SECOND_AXIS]) - 25.0 - viewportY);
+            hudRenderer.drawCountdown(g, x, y, (Simulation.GOAL_DELAY - snapshot.goalElapsedMillis) / 1000);
+        }
+    }
+
+    /**
+     * Returns the heads-up display, for the parts of it that only the game window draws.
+     *
+     * @return The heads-up display.
+     */
+    public @NotNull HudRenderer getHud() {
+        return hudRenderer;
+    }
+}
@@ -0,0 +1,237 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The {@code ScrollingBackground} class keeps the visible part of the level art in a buffer of the size of the
+ * screen, and follows the camera by only drawing the strips of the art that scrolled into view.
+ * <p>
+ * The camera usually moves by a pixel or two between frames. Instead of copying the whole view out of the level art
+ * every frame, the buffer wraps around: the level pixel {@code (x, y)} is kept at
+ * {@code (x mod width, y mod height)}. When the view moves, only the columns and rows that came into view are copied
+ * from the art, over the ones that left it, and nothing in the buffer has to be shifted. The frame then starts with
+ * the buffer drawn in up to four pieces, which is one straight copy in the format of the screen rather than a
+ * conversion from that of the art (often an indexed GIF). A jump of a whole screen or more, such as a new level,
+ * redraws the whole buffer.
+ * </p>
+ * <p>
+ * <i>Note: Shifting the buffer with {@link Graphics#copyArea} instead would cost an extra full copy per frame, and
+ * in software it is several times slower again when the view moves left or up. With a
+ * {@link GraphicsConfiguration} the buffer is an accelerated {@link VolatileImage}; when its contents are lost it is
+ * redrawn in full.</i>
+ * </p>
+ *
+ * @see Vehicle2
+ * @since 1.0
+ */
+public class ScrollingBackground {
+    /**
+     * The level art.
+     */
+    private final Image source;
+    /**
+     * The size of the view in pixels.
+     */
+    private final int width;
+    private final int height;
+    /**
+     * The graphics configuration of an accelerated buffer, or {@code null} for a {@link BufferedImage}.
+     */
+    private final GraphicsConfiguration config;
+    /**
+     * The view of the previous frame, wrapped around.
+     */
+    private Image buffer;
+    /**
+     * The position of the view held by the buffer.
+     */
+    private int bufferX;
+    private int bufferY;
+    /**
+     * {@code false} until the buffer has been drawn in full, and after its contents were lost.
+     */
+    private boolean valid = false;
+
+    /**
+     * Constructs a {@code ScrollingBackground}.
+     *
+     * @param source The level art.
+     * @param width  The width of the view in pixels.
+     * @param height The height of the view in pixels.
+     * @param config The configuration to create an accelerated buffer for, or {@code null} for a plain image.
+     */
+    public ScrollingBackground(@NotNull Image source, int width, int height, @Nullable GraphicsConfiguration config) {
+        this.source = source;
+        this.width = width;
+        this.height = height;
+        this.config = config;
+    }
+
+    /**
+     * Brings the buffer to a position of the view and draws it at the top-left corner of the target.
+     *
+     * @param target    The graphics to draw the background with.
+     * @param viewportX The x-coordinate of the top-left corner of the view in the level.
+     * @param viewportY The y-coordinate of the top-left corner of the view in the level.
+     */
+    public void draw(@NotNull Graphics target, int viewportX, int viewportY) {
+        if (buffer == null) {
+            buffer = createBuffer();
+        }
+        if (buffer instanceof VolatileImage volatileBuffer) {
+            int status = volatileBuffer.validate(config);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                buffer = createBuffer();
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                valid = false;
+            }
+        }
+        scrollTo(viewportX, viewportY);
+
+        // The buffer holds the view starting at (ox, oy); the parts after the wrap go right and below
+        int ox = Math.floorMod(viewportX, width);
+        int oy = Math.floorMod(viewportY, height);
+        int w = width - ox;
+        int h = height - oy;
+        target.drawImage(buffer, 0, 0, w, h, ox, oy, width, height, null);
+        if (ox > 0) {
+            target.drawImage(buffer, w, 0, width, h, 0, oy, ox, height, null);
+        }
+        if (oy > 0) {
+            target.drawImage(buffer, 0, h, w, height, ox, 0, width, oy, null);
+        }
+        if (ox > 0 && oy > 0) {
+            target.drawImage(buffer, w, h, width, height, 0, 0, ox, oy, null);
+        }
+        if (buffer instanceof VolatileImage volatileBuffer && volatileBuffer.contentsLost()) {
+            valid = false;
+        }
+    }
+
+    /**
+     * Moves the buffer to a position of the view, drawing the columns and rows that came into view.
+     *
+     * @param viewportX The x-coordinate of the top-left corner of the view in the level.
+     * @param viewportY The y-coordinate of the top-left corner of the view in the level.
+     */
+    private void scrollTo(int viewportX, int viewportY) {
+        int dx = viewportX - bufferX;
+        int dy = viewportY - bufferY;
+        if (valid && dx == 0 && dy == 0) {
+            return;
+        }
+        Graphics g = buffer.getGraphics();
+        try {
+            if (!valid || Math.abs(dx) >= width || Math.abs(dy) >= height) {
+                copyFromSource(g, viewportX, viewportY, width, height);
+                valid = true;
+            } else {
+                if (dx > 0) {
+                    copyFromSource(g, bufferX + width, viewportY, dx, height);
+                } else if (dx < 0) {
+                    copyFromSource(g, viewportX, viewportY, -dx, height);
+                }
+                if (dy > 0) {
+                    copyFromSource(g, viewportX, bufferY + height, width, dy);
+                } else if (dy < 0) {
+                    copyFromSource(g, viewportX, viewportY, width, -dy);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        bufferX = viewportX;
+        bufferY = viewportY;
+    }
+
+    /**
+     * Copies a rectangle of the level art into the buffer, split where it wraps around the edges of the buffer.
+     *
+     * @param g The graphics of the buffer.
+     * @param x The left edge of the rectangle in the level.
+     * @param y The top edge of the rectangle in the level.
+     * @param w The width of the rectangle, at most the width of the buffer.
+     * @param h The height of the rectangle, at most the height of the buffer.
+     */
+    private void copyFromSource(@NotNull Graphics g, int x, int y, int w, int h) {
+        int bx = Math.floorMod(x, width);
+        int by = Math.floorMod(y, height);
+        // The widths and heights before and after the wrap
+        int w1 = Math.min(w, width - bx);
+        int h1 = Math.min(h, height - by);
+        copyPiece(g, bx, by, x, y, w1, h1);
+        copyPiece(g, 0, by, x + w1, y, w - w1, h1);
+        copyPiece(g, bx, 0, x, y + h1, w1, h - h1);
+        copyPiece(g, 0, 0, x + w1, y + h1, w - w1, h - h1);
+    }
+
+    private void copyPiece(@NotNull Graphics g, int bx, int by, int x, int y, int w, int h) {
+        if (w > 0 && h > 0) {
+            g.drawImage(source, bx, by, bx + w, by + h, x, y, x + w, y + h, null);
+        }
+    }
+
+    private @NotNull Image createBuffer() {
+        valid = false;
+        if (config != null) {
+            return config.createCompatibleVolatileImage(width, height);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Compares drawing the view straight from the level art every frame with scrolling the buffer,
+     * for a camera moving one or two pixels a frame. For testing.
+     *
+     * @param args The level art, for example {@code Levels/Level2_c.gif}.
+     * @throws IOException If the image cannot be read.
+     */
+    public static void main(String @NotNull [] args) throws IOException {
+        BufferedImage art = ImageIO.read(new File(args.length > 0 ? args[0] : "Levels/Level2_c.gif"));
+        int width = Math.min(800, art.getWidth() * 3 / 4);
+        int height = Math.min(600, art.getHeight() * 3 / 4);
+        BufferedImage screen = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics g = screen.getGraphics();
+        int frames = 2000;
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            for (int f = 0; f < frames; f++) {
+                int x = pingPong(f * 3 / 2, art.getWidth() - width);
+                int y = pingPong(f / 2, art.getHeight() - height);
+                g.drawImage(art, 0, 0, width, height, x, y, x + width, y + height, null);
+            }
+            long t1 = System.nanoTime();
+            ScrollingBackground background = new ScrollingBackground(art, width, height, null);
+            for (int f = 0; f < frames; f++) {
+                background.draw(g, pingPong(f * 3 / 2, art.getWidth() - width), pingPong(f / 2, art.getHeight() - height));
+            }
+            long t2 = System.nanoTime();
+            V2RApp.logger.info("{} ({}): full {} us/frame, scrolled {} us/frame", args.length > 0 ? args[0] : "",
+                    art.getType(), (t1 - t0) / 1000 / frames, (t2 - t1) / 1000 / frames);
+        }
+        g.dispose();
+    }
+
+    /**
+     * Moves back and forth between 0 and a maximum.
+     *
+     * @param position The distance moved.
+     * @param max      The maximum.
+     * @return The position.
+     */
+    private static int pingPong(int position, int max) {
+        if (max <= 0) {
+            return 0;
+        }
+        int p = position % (2 * max);
+        return p <= max ? p : 2 * max - p;
+    }
+}
@@ -0,0 +1,913 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code Simulation} class runs the physics of one vehicle on one level without any display.
+ * <p>
+ * A simulation is driven by calling {@link #apply(InputFrame)} with the player input and then {@link #step()},
+ * which advances the world by one fixed step of {@code dt}. Time inside the simulation is counted in steps,
+ * each lasting {@code delay} milliseconds, so a run gives the same result however fast it is computed.
+ * </p>
+ * <p>
+ * <i>Note: The terrain is only read, so several simulations may share one {@link Terrain}.</i>
+ * </p>
+ *
+ * @see InputFrame
+ * @since 1.0
+ */
+public class Simulation {
+    /**
+     * The time the vehicle has to stay inside the goal to finish the level (in milliseconds).
+     */
+    public static final long GOAL_DELAY = 5000;
+    /**
+     * How far (in pixels) a node is pushed out of the ground beyond the surface.
+     */
+    private static final double SURFACE_SKIN = 0.1;
+    /**
+     * The smallest advance (in pixels) when marching along a move through the distance field.
+     */
+    private static final double MIN_MARCH = 0.5;
+    /**
+     * The steepest slope of the interpolated distance field. Between pixel centres it can change by up to
+     * {@code sqrt(2)} per pixel, so distances are divided by this before being used as a safe step.
+     */
+    private static final double FIELD_SLOPE = 1.5;
+    /**
+     * The number of steps between two requests to load the terrain around the vehicle.
+     */
+    private static final int PREFETCH_INTERVAL = 16;
+    /**
+     * How far (in pixels) around the vehicle the terrain is loaded ahead.
+     */
+    private static final int PREFETCH_MARGIN = 256;
+    /**
+     * The level parameters.
+     */
+    private final GameParams gp;
+    /**
+     * The level parameters, parsed.
+     */
+    private final LevelSettings settings;
+    /**
+     * The world parameters derived from the level parameters.
+     */
+    final WorldParameters worldParameters;
+    /**
+     * The classified terrain of the level.
+     */
+    private final Terrain terrain;
+    /**
+     * The simulated vehicle.
+     */
+    final PlayerVehicle pVehicle;
+    /**
+     * Computes the spring forces.
+     */
+    private final SpringKernel springKernel = SpringKernels.get();
+    /**
+     * The signed distance field of the terrain, or {@code null} if the level uses the original collisions.
+     */
+    private final DistanceField distanceField;
+    /**
+     * The surface normal at the last collision found in the distance field.
+     */
+    private final double[] contactNormal = new double[2];
+    /**
+     * Whether the engine drives the wheels to the left, held since the last input.
+     */
+    boolean leftPressed = false;
+    /**
+     * Whether the engine drives the wheels to the right, held since the last input.
+     */
+    boolean rightPressed = false;
+    /**
+     * Whether the hook of the selected rope is to be fired, or released if it is out, at the next step.
+     */
+    boolean fireHook = false;
+    /**
+     * Whether the selected rope is to be wound in, making its springs stiffer, at the next step.
+     */
+    boolean windRope = false;
+    /**
+     * Whether the selected rope is to be let out, making its springs softer, at the next step.
+     */
+    boolean unwindRope = false;
+    /**
+     * The number of steps simulated so far.
+     */
+    private long stepCount;
+    /**
+     * Represents whether the vehicle is inside the goal.
+     */
+    private boolean insideGoal = false;
+    /**
+     * The step at which the vehicle entered the goal.
+     */
+    private long goalStartStep;
+    /**
+     * Represents whether the vehicle stayed in the goal long enough to finish the level.
+     */
+    private boolean finished = false;
+    /**
+     * The listeners notified of zone events.
+     */
+    private final List<TriggerListener> listeners = new ArrayList<>();
+    /**
+     * Whether the vehicle is in each zone, by the index of the zone.
+     */
+    private final boolean[] inZone;
+    /**
+     * The indices of the zones the vehicle is in, in the first {@link #zonesInsideCount} entries.
+     */
+    private int[] zonesInside;
+    /**
+     * The number of zones the vehicle is in.
+     */
+    private int zonesInsideCount = 0;
+    /**
+     * The indices of the zones found by the check in progress; swapped with {@link #zonesInside} when it is done.
+     */
+    private int[] zonesFound;
+    /**
+     * The check each zone was last found by, so a zone containing several of the checked points counts once.
+     */
+    private final int[] zoneStamp;
+    /**
+     * The number of the check in progress, raised once per check.
+     */
+    private int zoneCheck = 0;
+
+    /**
+     * Constructs a simulation of the given level, loading its terrain.
+     *
+     * @param map The level to simulate.
+     * @throws IOException If the terrain data image cannot be read.
+     */
+    public Simulation(@NotNull LevelMap map) throws IOException {
+        this(map.lp, TerrainLoader.load(map.lp));
+    }
+
+    /**
+     * Constructs a simulation of a level whose terrain has already been loaded.
+     *
+     * @param gp      The level parameters.
+     * @param terrain The classified terrain of the level.
+     */
+    public Simulation(@NotNull GameParams gp, @NotNull Terrain terrain) {
+        this.gp = gp;
+        this.settings = gp.getSettings();
+        int zones = this.settings.zones.size();
+        this.inZone = new boolean[zones];
+        this.zonesInside = new int[zones];
+        this.zonesFound = new int[zones];
+        this.zoneStamp = new int[zones];
+        this.terrain = terrain;
+        this.worldParameters = new WorldParameters(gp);
+        this.pVehicle = new PlayerVehicle(gp, worldParameters);
+        this.distanceField = worldParameters.distanceCollision ? terrain.getDistanceField() : null;
+        if (worldParameters.distanceCollision && this.distanceField == null) {
+            V2RApp.logger.warn("This terrain has no distance field, using the original collisions");
+        }
+    }
+
+    /**
+     * Applies the player input for the next step. Held controls replace the current ones and events are queued
+     * until the next call to {@link #step()}.
+     *
+     * @param input The input to apply.
+     */
+    public void apply(@NotNull InputFrame input) {
+        leftPressed = input.left;
+        rightPressed = input.right;
+        fireHook |= input.fireHook;
+        windRope |= input.windRope;
+        unwindRope |= input.unwindRope;
+        if (input.ropeSlot == 0 || input.ropeSlot == 1) {
+            pVehicle.ropeSlot = input.ropeSlot;
+        }
+        pVehicle.turretAngle += 0.1 * input.turret;
+        for (int i = 0; i < input.buoyancy && pVehicle.buoyancy < 1.0; i++) {
+            pVehicle.buoyancy += 0.15;
+        }
+        for (int i = 0; i > input.buoyancy && pVehicle.buoyancy > 0.0; i--) {
+            pVehicle.buoyancy -= 0.15;
+        }
+    }
+
+    /**
+     * Advances the simulation by one fixed step: applies the pending rope input, integrates the vehicle
+     * in {@code substeps} sub-steps and checks whether the vehicle has reached the goal.
+     * Does nothing once the level is finished.
+     */
+    public void step() {
+        if (finished) return;
+        final PhysicsState body = this.pVehicle.body;
+        final double[] px = body.x;
+        final double[] py = body.y;
+        final double[] vx = body.vx;
+        final double[] vy = body.vy;
+        final int c = this.pVehicle.pCounter;
+        int n;
+
+        // Handle hooks and rope
+        final int ropeSlot = this.pVehicle.ropeSlot;
+        final int ropeNodes = this.pVehicle.ropeSegments[ropeSlot];
+        final int ropeSprings = this.pVehicle.ropeAnchor[ropeSlot];
+        if (this.fireHook && this.pVehicle.activeRope[ropeSlot]) {
+            n = 0;
+            while (n < this.pVehicle.maxRopeSegments) {
+                body.nodeActive[ropeNodes + n] = false;
+                body.springActive[ropeSprings + n] = false;
+                ++n;
+            }
+            this.pVehicle.activeRope[ropeSlot] = false;
+            this.fireHook = false;
+        }
+        if (this.pVehicle.activeRope[ropeSlot] && this.windRope) {
+            n = ropeSprings;
+            while (n < ropeSprings + this.pVehicle.maxRopeSegments) {
+                if (body.stiffness[n] < this.pVehicle.ropeMax) {
+                    body.stiffness[n] *= 1.1;
+                    ++n;
+                } else {
+                    break;
+                }
+            }
+            this.windRope = false;
+        }
+        if (this.pVehicle.activeRope[ropeSlot] && this.unwindRope) {
+            int endAnchor = ropeSprings + this.pVehicle.maxRopeSegments;
+            for (int i = ropeSprings; i < endAnchor; i++) {
+                if (body.stiffness[i] > this.pVehicle.ropeMin) {
+                    body.stiffness[i] *= 0.9;
+                }
+            }
+            this.unwindRope = false;
+        }
+        if (this.fireHook && !this.pVehicle.activeRope[ropeSlot]) {
+            this.pVehicle.inactiveRope[ropeSlot] = false;
+            this.pVehicle.activeRope[ropeSlot] = true;
+            this.fireHook = false;
+            n = 0;
+            while (n < this.pVehicle.maxRopeSegments) {
+                body.nodeActive[ropeNodes + n] = true;
+                body.springActive[ropeSprings + n] = true;
+                px[ropeNodes + n] = px[c] + ((1 + n) * 2) * Math.cos(this.pVehicle.turretAngle);
+                py[ropeNodes + n] = py[c] + ((1 + n) * 2) * Math.sin(this.pVehicle.turretAngle);
+                body.stiffness[ropeSprings + n] = this.pVehicle.ropeMin;
+                ++n;
+            }
+            int hook = this.pVehicle.hookNode(ropeSlot);
+            vy[hook] = this.worldParameters.scaleSize * this.pVehicle.v0Rope * Math.sin(this.pVehicle.turretAngle);
+            vx[hook] = this.worldParameters.scaleSize * this.pVehicle.v0Rope * Math.cos(this.pVehicle.turretAngle);
+        }
+
+        for (n = 0; n < this.worldParameters.substeps; n++) {
+            integrate();
+        }
+
+        ++this.stepCount;
+        if (this.stepCount % 2 == 0) {
+            checkGoal();
+            checkZones();
+        }
+        if (this.stepCount % PREFETCH_INTERVAL == 0) {
+            prefetchAroundVehicle();
+        }
+    }
+
+    /**
+     * Asks the terrain to load the area the vehicle can reach soon: its bounding box, grown by
+     * {@link #PREFETCH_MARGIN} on every side.
+     */
+    private void prefetchAroundVehicle() {
+        final PhysicsState body = this.pVehicle.body;
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int n = 0; n < body.nodeCount; n++) {
+            if (body.nodeActive[n]) {
+                minX = Math.min(minX, body.x[n]);
+                minY = Math.min(minY, body.y[n]);
+                maxX = Math.max(maxX, body.x[n]);
+                maxY = Math.max(maxY, body.y[n]);
+            }
+        }
+        int x = (int) minX - PREFETCH_MARGIN;
+        int y = (int) minY - PREFETCH_MARGIN;
+        this.terrain.prefetch(x, y, (int) maxX + PREFETCH_MARGIN - x, (int) maxY + PREFETCH_MARGIN - y);
+    }
+
+    /**
+     * Integrates the vehicle over one sub-step: engine, spring forces, gravity, friction and terrain collisions.
+     */
+    private void integrate() {
+        final double dt = this.worldParameters.subDt;
+        applyEngine(this.pVehicle.fEngine / this.worldParameters.substeps);
+        switch (this.worldParameters.integrator) {
+            case SYMPLECTIC -> {
+                applySprings(dt, this.worldParameters.springLimit);
+                moveNodes(dt);
+            }
+            case VERLET -> moveNodesVerlet(dt);
+            default -> {
+                applySprings(dt, 0.0);
+                moveNodes(dt);
+            }
+        }
+    }
+
+    /**
+     * Turns the wheels by pushing each rim node around its axis.
+     *
+     * @param engineForce The velocity change applied per unit of distance from the axis.
+     */
+    private void applyEngine(final double engineForce) {
+        if (!this.leftPressed && !this.rightPressed) {
+            return;
+        }
+        final PhysicsState body = this.pVehicle.body;
+        final double[] px = body.x;
+        final double[] py = body.y;
+        final double[] vx = body.vx;
+        final double[] vy = body.vy;
+        int n2 = this.leftPressed ? 1 : -1;
+        int n3 = 0;
+        while (n3 < 2) {
+            int axis = pVehicle.maxRopeSegments + 11 * n3;
+            int n = 0;
+            while (n < pVehicle.maxRopeSegments) {
+                int n4 = n + 11 * n3;
+                vy[n4] += (px[axis] - px[n4]) * engineForce * n2;
+                vx[n4] += (py[n4] - py[axis]) * engineForce * n2;
+                ++n;
+            }
+            ++n3;
+        }
+    }
+
+    /**
+     * Applies the force of every active spring to the velocities of its two nodes.
+     *
+     * @param dt       The length of the sub-step.
+     * @param maxRatio If positive, each spring is softened so that {@code k * dt^2 * (1/mA + 1/mB)} stays below this
+     *                 value, which keeps symplectic Euler stable; if zero, the springs are used as they are, and the
+     *                 forces are divided by the masses like the original update did, so that it rounds the same.
+     */
+    private void applySprings(final double dt, final double maxRatio) {
+        final PhysicsState body = this.pVehicle.body;
+        this.springKernel.computeForces(body, maxRatio / (dt * dt));
+        final double[] vx = body.vx;
+        final double[] vy = body.vy;
+        final int[] springA = body.springA;
+        final int[] springB = body.springB;
+        final boolean[] springActive = body.springActive;
+        final double[] force = body.springForce;
+        final double[] dirX = body.springDirX;
+        final double[] dirY = body.springDirY;
+        final int springCount = body.springCount;
+        // Add the forces in spring order, so the result does not depend on the kernel
+        if (maxRatio > 0.0) {
+            final double[] invMass = body.invMass;
+            for (int n = 0; n < springCount; n++) {
+                if (springActive[n]) {
+                    int a = springA[n];
+                    int b = springB[n];
+                    double d10 = force[n] * invMass[a];
+                    vx[a] -= dt * d10 * dirX[n];
+                    vy[a] -= dt * d10 * dirY[n];
+                    d10 = force[n] * invMass[b];
+                    vx[b] += dt * d10 * dirX[n];
+                    vy[b] += dt * d10 * dirY[n];
+                }
+            }
+        } else {
+            final double[] mass = body.mass;
+            for (int n = 0; n < springCount; n++) {
+                if (springActive[n]) {
+                    int a = springA[n];
+                    int b = springB[n];
+                    double d10 = force[n] / mass[a];
+                    vx[a] -= dt * d10 * dirX[n];
+                    vy[a] -= dt * d10 * dirY[n];
+                    d10 = force[n] / mass[b];
+                    vx[b] += dt * d10 * dirX[n];
+                    vy[b] += dt * d10 * dirY[n];
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies gravity and friction to every active node, moves it with its velocity and undoes the move if the node
+     * ends up inside the ground. A hook that hits the ground sticks there.
+     *
+     * @param dt The length of the sub-step.
+     */
+    private void moveNodes(final double dt) {
+        final PhysicsState body = this.pVehicle.body;
+        final double[] px = body.x;
+        final double[] py = body.y;
+        final double[] vx = body.vx;
+        final double[] vy = body.vy;
+        final boolean[] nodeActive = body.nodeActive;
+        final int nodeCount = body.nodeCount;
+        for (int n = 0; n < nodeCount; n++) {
+            if (nodeActive[n]) {
+                applyGravityAndFriction(n, dt);
+                double lxt = px[n];
+                double lyt = py[n];
+                if (!isStuckHook(n)) {
+                    px[n] += dt * vx[n];
+                    py[n] += dt * vy[n];
+                }
+                if (collide(n, lxt, lyt) && this.distanceField != null && !isStuckHook(n)) {
+                    bounce(n);
+                }
+            }
+        }
+    }
+
+    /**
+     * Position Verlet step: predicts the positions from the velocities, moves the predicted positions to satisfy the
+     * springs, resolves collisions and then takes the velocities from the distance each node really travelled.
+     * <p>
+     * Each spring corrects at most its whole stretch in one sub-step, so stiff springs behave like rods instead of
+     * overshooting when {@code dt} is large.
+     * </p>
+     *
+     * @param dt The length of the sub-step.
+     */
+    private void moveNodesVerlet(final double dt) {
+        final PhysicsState body = this.pVehicle.body;
+        final double[] px = body.x;
+        final double[] py = body.y;
+        final double[] vx = body.vx;
+        final double[] vy = body.vy;
+        final double[] lastX = body.lastX;
+        final double[] lastY = body.lastY;
+        final double[] invMass = body.invMass;
+        final boolean[] nodeActive = body.nodeActive;
+        final int nodeCount = body.nodeCount;
+
+        // Predict
+        for (int n = 0; n < nodeCount; n++) {
+            if (nodeActive[n]) {
+                applyGravityAndFriction(n, dt);
+                lastX[n] = px[n];
+                lastY[n] = py[n];
+                if (!isStuckHook(n)) {
+                    px[n] += dt * vx[n];
+                    py[n] += dt * vy[n];
+                }
+            }
+        }
+
+        // Correct the springs on the predicted positions
+        final int[] springA = body.springA;
+        final int[] springB = body.springB;
+        final double[] stiffness = body.stiffness;
+        final double[] restLength = body.restLength;
+        final boolean[] springActive = body.springActive;
+        final int springCount = body.springCount;
+        final double dt2 = dt * dt;
+        for (int n = 0; n < springCount; n++) {
+            if (springActive[n]) {
+                int a = springA[n];
+                int b = springB[n];
+                double wA = isStuckHook(a) ? 0.0 : invMass[a];
+                double wB = isStuckHook(b) ? 0.0 : invMass[b];
+                double w = wA + wB;
+                double dx = px[a] - px[b];
+                double dy = py[a] - py[b];
+                double len = Math.sqrt(dx * dx + dy * dy);
+                if (w == 0.0 || len == 0.0) {
+                    continue;
+                }
+                double fraction = Math.min(1.0, stiffness[n] * dt2 * w);
+                double lambda = fraction * (len - restLength[n]) / (w * len);
+                px[a] -= wA * lambda * dx;
+                py[a] -= wA * lambda * dy;
+                px[b] += wB * lambda * dx;
+                py[b] += wB * lambda * dy;
+            }
+        }
+
+        // Collide and derive the velocities
+        for (int n = 0; n < nodeCount; n++) {
+            if (!nodeActive[n]) {
+                continue;
+            }
+            boolean hit = collide(n, lastX[n], lastY[n]);
+            if (isStuckHook(n) || hit && this.distanceField == null) {
+                continue;
+            }
+            vx[n] = (px[n] - lastX[n]) / dt;
+            vy[n] = (py[n] - lastY[n]) / dt;
+            if (hit) {
+                bounce(n);
+            }
+        }
+    }
+
+    /**
+     * Applies gravity (or buoyancy in water) and friction to the velocity of one node.
+     *
+     * @param n  The node index.
+     * @param dt The length of the sub-step.
+     */
+    private void applyGravityAndFriction(int n, double dt) {
+        final PhysicsState body = this.pVehicle.body;
+        if (this.terrain.checkPosition((int) body.x[n], (int) body.y[n]) == 'w') {
+            body.vy[n] += (0.5 - this.pVehicle.buoyancy) * dt * this.worldParameters.gravity;
+            body.vx[n] *= this.worldParameters.subFrictionW;
+            body.vy[n] *= this.worldParameters.subFrictionW;
+        } else {
+            body.vy[n] += dt * this.worldParameters.gravity;
+            body.vx[n] *= this.worldParameters.subFriction;
+            body.vy[n] *= this.worldParameters.subFriction;
+        }
+    }
+
+    /**
+     * Checks whether a node is the hook of a rope that has already caught on the ground.
+     *
+     * @param n The node index.
+     * @return {@code true} if the node is a stuck hook and must not move.
+     */
+    private boolean isStuckHook(int n) {
+        return n == this.pVehicle.hookNode(0) && this.pVehicle.inactiveRope[0] ||
+                n == this.pVehicle.hookNode(1) && this.pVehicle.inactiveRope[1];
+    }
+
+    /**
+     * Handles a node that has moved into the ground or out of the level, using the distance field if the level
+     * has one.
+     *
+     * @param n   The node index.
+     * @param lxt The x-coordinate of the node before the move.
+     * @param lyt The y-coordinate of the node before the move.
+     * @return {@code true} if the node collided.
+     */
+    private boolean collide(int n, double lxt, double lyt) {
+        return this.distanceField != null ? collideWithField(n, lxt, lyt) : collideWithTerrain(n, lxt, lyt);
+    }
+
+    /**
+     * Handles a node that has moved into the ground or out of the level. A hook sticks where it is; any other node
+     * is put back where it was and stopped.
+     *
+     * @param n   The node index.
+     * @param lxt The x-coordinate of the node before the move.
+     * @param lyt The y-coordinate of the node before the move.
+     * @return {@code true} if the node collided.
+     */
+    private boolean collideWithTerrain(int n, double lxt, double lyt) {
+        final PhysicsState body = this.pVehicle.body;
+        final double[] px = body.x;
+        final double[] py = body.y;
+        char c2;
+        if ((c2 = this.terrain.checkPosition((int) px[n], (int) py[n])) != 'l' && c2 != 'w' ||
+                px[n] < 0.0 ||
+                px[n] > (this.worldParameters.levelWidth - 1) ||
+                py[n] < 0.0 ||
+                py[n] > (this.worldParameters.levelHeight - 1)) {
+            if (n == this.pVehicle.hookNode(0)) {
+                this.pVehicle.inactiveRope[0] = true;
+            } else if (n == this.pVehicle.hookNode(1)) {
+                this.pVehicle.inactiveRope[1] = true;
+            } else {
+                px[n] = lxt;
+                py[n] = lyt;
+                body.vx[n] = 0.0;
+                body.vy[n] = 0.0;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Handles a node that has moved into the ground, using the distance field.
+     * <p>
+     * The move is followed from the old position in jumps as long as the distance to the nearest wall, so a fast
+     * node cannot pass through a thin wall. A hook sticks where it first touches the ground. Any other node is
+     * pushed back out along the surface normal instead of being put back where it was, so it can slide along the
+     * surface; {@link #bounce(int)} then adjusts its velocity.
+     * </p>
+     *
+     * @param n   The node index.
+     * @param lxt The x-coordinate of the node before the move.
+     * @param lyt The y-coordinate of the node before the move.
+     * @return {@code true} if the node collided.
+     */
+    private boolean collideWithField(int n, double lxt, double lyt) {
+        final PhysicsState body = this.pVehicle.body;
+        final DistanceField field = this.distanceField;
+        double dx = body.x[n] - lxt;
+        double dy = body.y[n] - lyt;
+        double length = Math.sqrt(dx * dx + dy * dy);
+        double hx = body.x[n];
+        double hy = body.y[n];
+        double d = field.distance(lxt, lyt);
+        if (d > FIELD_SLOPE * length + 1.0) {
+            // The whole move stays further from the start than the nearest wall: one lookup is enough
+            return false;
+        }
+        if (!isInGround(lxt, lyt, d)) {
+            double t = 0.0;
+            boolean hit = false;
+            while (t < length) {
+                t = Math.min(length, t + Math.max(d / FIELD_SLOPE, MIN_MARCH));
+                hx = lxt + dx * (t / length);
+                hy = lyt + dy * (t / length);
+                d = field.distance(hx, hy);
+                if (isInGround(hx, hy, d)) {
+                    hit = true;
+                    break;
+                }
+            }
+            if (!hit) {
+                return false;
+            }
+        } else {
+            hx = lxt;
+            hy = lyt;
+        }
+
+        if (n == this.pVehicle.hookNode(0) || n == this.pVehicle.hookNode(1)) {
+            this.pVehicle.inactiveRope[n == this.pVehicle.hookNode(0) ? 0 : 1] = true;
+            body.x[n] = hx;
+            body.y[n] = hy;
+            return true;
+        }
+        // Push the node out along the normal; corners may need more than one push
+        for (int i = 0; i < 8 && (d < SURFACE_SKIN || isInGround(hx, hy, d)); i++) {
+            field.normal(hx, hy, contactNormal);
+            double push = Math.max(SURFACE_SKIN - d, SURFACE_SKIN);
+            hx += contactNormal[0] * push;
+            hy += contactNormal[1] * push;
+            d = field.distance(hx, hy);
+        }
+        if (isInGround(hx, hy, d)) {
+            // Wedged in a gap narrower than a pixel: fall back to the original behaviour
+            body.x[n] = lxt;
+            body.y[n] = lyt;
+            body.vx[n] = 0.0;
+            body.vy[n] = 0.0;
+            return true;
+        }
+        body.x[n] = hx;
+        body.y[n] = hy;
+        return true;
+    }
+
+    /**
+     * Checks whether a point is in the ground. The interpolated distance rounds off the corners of the pixels,
+     * so close to the surface the terrain pixel itself is checked as well.
+     *
+     * @param x The x-coordinate.
+     * @param y The y-coordinate.
+     * @param d The distance field at the point.
+     * @return {@code true} if the point is in the ground or outside the level.
+     */
+    private boolean isInGround(double x, double y, double d) {
+        return d <= 0.0 || d < 1.0 && this.terrain.isSolid((int) x, (int) y);
+    }
+
+    /**
+     * Changes the velocity of a node that touches the surface found by the last call to
+     * {@link #collideWithField(int, double, double)}. {@code bounce} of the speed into the surface is sent back out
+     * and {@code grip} of the speed along the surface is lost, which gives the wheels their traction.
+     *
+     * @param n The node index.
+     */
+    private void bounce(int n) {
+        final PhysicsState body = this.pVehicle.body;
+        final double nx = contactNormal[0];
+        final double ny = contactNormal[1];
+        double vn = body.vx[n] * nx + body.vy[n] * ny;
+        if (vn < 0.0) {
+            double tx = body.vx[n] - vn * nx;
+            double ty = body.vy[n] - vn * ny;
+            double keep = 1.0 - this.worldParameters.grip;
+            double out = -this.worldParameters.bounce * vn;
+            body.vx[n] = tx * keep + out * nx;
+            body.vy[n] = ty * keep + out * ny;
+        }
+    }
+
+    /**
+     * Checks whether both body corners are inside the same goal and finishes the level once the vehicle
+     * has stayed there for {@link #GOAL_DELAY} milliseconds of simulated time.
+     */
+    private void checkGoal() {
+        final PhysicsState body = this.pVehicle.body;
+        final int x1 = (int) body.x[10];
+        final int y1 = (int) body.y[10];
+        final int x2 = (int) body.x[21];
+        final int y2 = (int) body.y[21];
+        boolean inside1 = isCoordinateInArea(x1, y1);
+        boolean inside2 = isCoordinateInArea(x2, y2);
+        // Straddling two separate goals does not count
+        boolean sameGoal = inside1 && inside2 && ((settings.isInGoal(x1, y1) && settings.isInGoal(x2, y2))
+                || settings.zones.containsBoth(x1, y1, x2, y2, Zone.Type.GOAL, getElapsedMillis()));
+
+        if (sameGoal && !insideGoal) {
+            // Set the start time when the body triangle is inside the goal area
+            goalStartStep = stepCount;
+            insideGoal = true;
+        }
+        if (insideGoal) {
+            // Check if conditions remain true for 5 seconds
+            if (!inside1 && !inside2) {
+                insideGoal = false;
+            }
+            if (getGoalElapsedMillis() >= GOAL_DELAY) {
+                finished = true;
+            }
+        }
+    }
+
+    /**
+     * Determines whether a given coordinate is within a specified rectangular area.
+     *
+     * @param x The x-coordinate to check.
+     * @param y The y-coordinate to check.
+     * @return {@code true} if the coordinate (x, y) lies within the bounds of the area defined by
+     * the Goal variables of the {@link LevelSettings}, {@code false} otherwise.
+     */
+    public boolean isCoordinateInArea(int x, int y) {
+        return settings.isInGoal(x, y) || settings.zones.contains(x, y, Zone.Type.GOAL, getElapsedMillis());
+    }
+
+    /**
+     * Finds the zones the body of the vehicle is in and fires a {@link ZoneEvent} for every zone it has left and
+     * then for every zone it has entered since the previous check. Only the zones of the grid cells under the three
+     * corners of the body are tested.
+     */
+    private void checkZones() {
+        final ZoneGrid grid = this.settings.zones;
+        if (grid.size() == 0) {
+            return;
+        }
+        final PhysicsState body = this.pVehicle.body;
+        final int c = this.pVehicle.pCounter;
+        final long now = getElapsedMillis();
+        this.zoneCheck++;
+        int count = collectZones(grid, body.x[10], body.y[10], now, 0);
+        count = collectZones(grid, body.x[21], body.y[21], now, count);
+        count = collectZones(grid, body.x[c], body.y[c], now, count);
+
+        for (int i = 0; i < this.zonesInsideCount; i++) {
+            int z = this.zonesInside[i];
+            if (this.zoneStamp[z] != this.zoneCheck) {
+                this.inZone[z] = false;
+                fireEvent(new ZoneEvent(this, grid.get(z), false));
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int z = this.zonesFound[i];
+            if (!this.inZone[z]) {
+                this.inZone[z] = true;
+                fireEvent(new ZoneEvent(this, grid.get(z), true));
+            }
+        }
+        int[] swap = this.zonesInside;
+        this.zonesInside = this.zonesFound;
+        this.zonesFound = swap;
+        this.zonesInsideCount = count;
+    }
+
+    /**
+     * Adds the active zones containing a point to {@link #zonesFound}, each zone only once per check.
+     *
+     * @param grid  The zones of the level.
+     * @param x     The x-coordinate.
+     * @param y     The y-coordinate.
+     * @param now   The level time in milliseconds.
+     * @param count The number of zones found so far.
+     * @return The number of zones found.
+     */
+    private int collectZones(@NotNull ZoneGrid grid, double x, double y, long now, int count) {
+        final int ix = (int) x;
+        final int iy = (int) y;
+        for (int z : grid.candidates(ix, iy)) {
+            Zone zone = grid.get(z);
+            if (this.zoneStamp[z] != this.zoneCheck && zone.contains(ix, iy) && zone.isActive(now)) {
+                this.zoneStamp[z] = this.zoneCheck;
+                this.zonesFound[count++] = z;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds a listener notified with a {@link ZoneEvent} when the vehicle enters or leaves a zone.
+     * The listeners are called from {@link #step()}, on the thread stepping the simulation.
+     *
+     * @param listener The TriggerListener to be added.
+     */
+    public void addEventListener(@NotNull TriggerListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Fires an event to all registered listeners.
+     *
+     * @param event The event.
+     */
+    private void fireEvent(@NotNull TriggerEvent event) {
+        for (TriggerListener listener : listeners) {
+            listener.onEventOccurred(event);
+        }
+    }
+
+    /**
+     * Returns the number of steps simulated so far.
+     *
+     * @return The step count.
+     */
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Returns the simulated time since the start of the level.
+     *
+     * @return The elapsed time in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return stepCount * worldParameters.delay;
+    }
+
+    /**
+     * Returns the simulated time the vehicle has been inside the goal.
+     *
+     * @return The time in the goal in milliseconds, or 0 if the vehicle is not inside the goal.
+     */
+    public long getGoalElapsedMillis() {
+        return insideGoal ? (stepCount - goalStartStep) * worldParameters.delay : 0;
+    }
+
+    /**
+     * Represents whether the vehicle is inside the goal.
+     *
+     * @return {@code true} if the vehicle is inside the goal.
+     */
+    public boolean isInsideGoal() {
+        return insideGoal;
+    }
+
+    /**
+     * Represents whether the vehicle stayed in the goal long enough to finish the level.
+     *
+     * @return {@code true} once the level is finished.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Returns the simulated vehicle.
+     *
+     * @return The player vehicle.
+     */
+    public PlayerVehicle getVehicle() {
+        return pVehicle;
+    }
+
+    /**
+     * Returns the terrain the vehicle is driving on.
+     *
+     * @return The terrain of the level.
+     */
+    public Terrain getTerrain() {
+        return terrain;
+    }
+
+    /**
+     * Returns the level parameters of this simulation.
+     *
+     * @return The level parameters.
+     */
+    public GameParams getParams() {
+        return gp;
+    }
+
+    /**
+     * Returns the world parameters of this simulation.
+     *
+     * @return The world parameters.
+     */
+    public WorldParameters getWorldParameters() {
+        return worldParameters;
+    }
+}
@@ -0,0 +1,220 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code SimulationRunner} class steps a {@link Simulation} on its own thread, so that physics keep their pace
+ * whatever the event dispatch thread is doing, and a slow frame or a burst of layout work no longer holds them up.
+ * <p>
+ * The thread runs one step every {@code delay} milliseconds of wall-clock time, using a {@link FixedStepLoop}, and
+ * sleeps in between. Before each step it takes the input collected by the key listeners and moves the camera, as
+ * the game loop on the event dispatch thread did. After each step it publishes a {@link VehicleSnapshot}, which the
+ * event dispatch thread draws, interpolated between the last two steps, at whatever rate it presents frames.
+ * </p>
+ * <p>
+ * <i>Note: The key listeners and this thread share the {@link InputFrame}; both only touch it while holding its
+ * lock. Listeners of the simulation, such as zone events, are called on this thread.</i>
+ * </p>
+ *
+ * @see Vehicle2
+ * @since 1.0
+ */
+public class SimulationRunner {
+    /**
+     * The simulation, only touched by the thread once it has been started.
+     */
+    private final Simulation sim;
+    /**
+     * The input shared with the key listeners.
+     */
+    private final InputFrame input;
+    /**
+     * This thread's copy of the input for one step, so the lock is not held while stepping.
+     */
+    private final InputFrame stepInput = new InputFrame();
+    /**
+     * Converts elapsed wall-clock time into physics steps.
+     */
+    private final FixedStepLoop stepLoop;
+    /**
+     * The width of the screen, to keep the vehicle in the middle of the view.
+     */
+    private final int screenWidth;
+    /**
+     * The height of the screen.
+     */
+    private final int screenHeight;
+    /**
+     * The smoothed x-coordinate of the camera (the top-left corner of the view) in level coordinates.
+     */
+    private double cameraX;
+    /**
+     * The smoothed y-coordinate of the camera.
+     */
+    private double cameraY;
+    /**
+     * The snapshot after the latest step.
+     */
+    private volatile VehicleSnapshot snapshot;
+    /**
+     * Set to stop the thread.
+     */
+    private volatile boolean stopped = false;
+    /**
+     * The thread, or {@code null} before {@link #start()}.
+     */
+    private Thread thread;
+
+    /**
+     * Constructs a runner for a simulation and publishes the state before the first step.
+     *
+     * @param sim              The simulation.
+     * @param input            The input collected by the key listeners.
+     * @param cameraX          The x-coordinate of the camera at the start.
+     * @param cameraY          The y-coordinate of the camera at the start.
+     * @param screenWidth      The width of the screen.
+     * @param screenHeight     The height of the screen.
+     * @param maxStepsPerFrame The number of late steps run at once before the game is allowed to fall behind.
+     */
+    public SimulationRunner(@NotNull Simulation sim, @NotNull InputFrame input, double cameraX, double cameraY,
+                            int screenWidth, int screenHeight, int maxStepsPerFrame) {
+        this.sim = sim;
+        this.input = input;
+        this.cameraX = cameraX;
+        this.cameraY = cameraY;
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        this.stepLoop = new FixedStepLoop(sim.getWorldParameters().delay, maxStepsPerFrame);
+        this.snapshot = new VehicleSnapshot(sim, System.nanoTime(), cameraX, cameraY, null);
+    }
+
+    /**
+     * Starts stepping the simulation.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::runSteps, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops stepping the simulation and waits for the step in progress to end, so the simulation is no longer
+     * touched once this returns.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        if (thread == null || thread == Thread.currentThread()) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the snapshot after the latest step.
+     *
+     * @return The snapshot; the state before the first step until one has been run.
+     */
+    public @NotNull VehicleSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the wall-clock duration of one step.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getStepNanos() {
+        return stepLoop.getStepNanos();
+    }
+
+    /**
+     * The loop of the thread: runs the steps that are due, then sleeps until the next one.
+     */
+    private void runSteps() {
+        final long stepNanos = stepLoop.getStepNanos();
+        stepLoop.reset(System.nanoTime());
+        try {
+            while (!stopped) {
+                long now = System.nanoTime();
+                int steps = stepLoop.advance(now);
+                // The time the last of these steps was due at; the others were due one step apart before it
+                long last = now - (long) (stepLoop.alpha() * stepNanos);
+                for (int i = 0; i < steps && !stopped; i++) {
+                    step(last - (steps - 1 - i) * stepNanos);
+                    if (snapshot.finished) {
+                        return;
+                    }
+                }
+                LockSupport.parkNanos(stepNanos - (long) (stepLoop.alpha() * stepNanos));
+            }
+        } catch (RuntimeException e) {
+            V2RApp.logger.error("The simulation stopped", e);
+        }
+    }
+
+    /**
+     * Runs one step and publishes its snapshot. Called by the thread, or directly by a {@link FrameExporter}, which
+     * steps the simulation without one.
+     *
+     * @param due The wall-clock time the step was due at.
+     */
+    void step(long due) {
+        synchronized (input) {
+            copyInput(input, stepInput);
+            input.clearEvents();
+        }
+        updateCamera();
+        sim.apply(stepInput);
+        sim.step();
+        snapshot = new VehicleSnapshot(sim, due, cameraX, cameraY, snapshot);
+    }
+
+    private static void copyInput(@NotNull InputFrame from, @NotNull InputFrame to) {
+        to.left = from.left;
+        to.right = from.right;
+        to.fireHook = from.fireHook;
+        to.windRope = from.windRope;
+        to.unwindRope = from.unwindRope;
+        to.ropeSlot = from.ropeSlot;
+        to.turret = from.turret;
+        to.buoyancy = from.buoyancy;
+    }
+
+    /**
+     * Moves the camera a little towards the vehicle, leading it in the direction the wheels are moving.
+     * Called once per physics step so the camera follows at the same speed whatever the frame rate.
+     */
+    private void updateCamera() {
+        final double SMOOTHING_FACTOR = 0.99;
+        final double ADJUSTMENT_FACTOR = 0.01;
+        final double VELOCITY_MULTIPLIER = 3.0;
+        final int PARTS_COUNT = 20;
+        final PhysicsState body = sim.getVehicle().getBody();
+
+        double d4 = 0.0;
+        double d5 = 0.0;
+        int n = 0;
+        while (n < PARTS_COUNT) {
+            d4 += body.vx[n];
+            d5 += body.vy[n];
+            ++n;
+        }
+        final int c = sim.getVehicle().getCorpusNode();
+        d4 /= PARTS_COUNT;
+        d5 /= PARTS_COUNT;
+        this.cameraX = SMOOTHING_FACTOR * this.cameraX + ADJUSTMENT_FACTOR *
+                (body.x[c] + VELOCITY_MULTIPLIER * d4 - ((double) this.screenWidth / 2));
+        this.cameraY = SMOOTHING_FACTOR * this.cameraY + ADJUSTMENT_FACTOR *
+                (body.y[c] + VELOCITY_MULTIPLIER * d5 - ((double) this.screenHeight / 2));
+    }
+}
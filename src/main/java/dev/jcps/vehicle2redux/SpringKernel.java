@@ -0,0 +1,36 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The {@code SpringKernel} interface computes the force of every spring of a {@link PhysicsState}.
+ * <p>
+ * The forces depend only on the node positions, so a kernel may compute the springs in any order or several at
+ * once. It writes the signed Hooke force and the unit direction from the second node to the first node of each spring
+ * into {@link PhysicsState#springForce}, {@link PhysicsState#springDirX} and {@link PhysicsState#springDirY}; the
+ * simulation then adds them to the node velocities in spring order.
+ * </p>
+ * <p>
+ * <i>Note: The values written for inactive springs are undefined and must be ignored.</i>
+ * </p>
+ *
+ * @see SpringKernels
+ * @since 1.0
+ */
+public interface SpringKernel {
+    /**
+     * Computes the force and direction of every spring.
+     *
+     * @param body           The nodes and springs.
+     * @param stiffnessLimit If positive, the stiffness of each spring is limited to
+     *                       {@code stiffnessLimit / (1/mA + 1/mB)}; if zero, the springs are used as they are.
+     */
+    void computeForces(@NotNull PhysicsState body, double stiffnessLimit);
+
+    /**
+     * Returns a short name of the kernel for log messages.
+     *
+     * @return The name of the kernel.
+     */
+    @NotNull String name();
+}
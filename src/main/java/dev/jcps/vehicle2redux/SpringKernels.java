@@ -0,0 +1,157 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Random;
+
+/**
+ * The {@code SpringKernels} class chooses the {@link SpringKernel} used by every {@link Simulation}.
+ * <p>
+ * The {@link ScalarSpringKernel} is used unless the SIMD kernel is requested with the {@code --simd} command line
+ * argument. The SIMD kernel is only used if the {@code jdk.incubator.vector} module is present and if it gives the
+ * same forces as the scalar kernel on a test vehicle; otherwise a warning is logged and the scalar kernel is used.
+ * </p>
+ *
+ * @see SpringKernel
+ * @since 1.0
+ */
+public final class SpringKernels {
+    /**
+     * The largest relative difference between a kernel and the scalar reference that is accepted.
+     */
+    static final double TOLERANCE = 1e-9;
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL = "dev.jcps.vehicle2redux.VectorSpringKernel";
+    private static boolean vectorRequested = false;
+    private static SpringKernel kernel = null;
+
+    private SpringKernels() {
+    }
+
+    /**
+     * Requests the SIMD kernel (or the scalar kernel) for simulations created from now on.
+     *
+     * @param requested {@code true} to use the SIMD kernel if it is available.
+     */
+    public static synchronized void setVectorRequested(boolean requested) {
+        if (requested != vectorRequested) {
+            vectorRequested = requested;
+            kernel = null;
+        }
+    }
+
+    /**
+     * Returns the kernel to use, choosing and checking it on the first call.
+     *
+     * @return The spring kernel.
+     */
+    public static synchronized @NotNull SpringKernel get() {
+        if (kernel == null) {
+            kernel = vectorRequested ? loadVectorKernel() : ScalarSpringKernel.INSTANCE;
+            if (V2RApp.debug) V2RApp.logger.debug("Spring kernel: {}", kernel.name());
+        }
+        return kernel;
+    }
+
+    /**
+     * Loads the SIMD kernel and checks it against the scalar kernel.
+     *
+     * @return The SIMD kernel, or the scalar kernel if the SIMD kernel is not available or gives wrong results.
+     */
+    private static @NotNull SpringKernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            V2RApp.logger.warn("SIMD kernel needs --add-modules {}, using the scalar kernel", VECTOR_MODULE);
+            return ScalarSpringKernel.INSTANCE;
+        }
+        SpringKernel candidate;
+        try {
+            candidate = (SpringKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            V2RApp.logger.warn("SIMD kernel could not be loaded, using the scalar kernel", e);
+            return ScalarSpringKernel.INSTANCE;
+        }
+        double error = compare(candidate, 42);
+        if (!(error <= TOLERANCE)) {
+            V2RApp.logger.warn("SIMD kernel differs from the scalar kernel by {}, using the scalar kernel", error);
+            return ScalarSpringKernel.INSTANCE;
+        }
+        return candidate;
+    }
+
+    /**
+     * Compares a kernel with the scalar kernel on a vehicle with randomly displaced nodes and both ropes out,
+     * with and without a stiffness limit.
+     *
+     * @param candidate The kernel to check.
+     * @param seed      The seed of the random displacement.
+     * @return The largest relative difference of any force or direction, or {@code NaN} if one kernel gives
+     * {@code NaN} where the other does not.
+     */
+    static double compare(@NotNull SpringKernel candidate, long seed) {
+        GameParams gp = new GameParams();
+        PlayerVehicle vehicle = new PlayerVehicle(gp, new WorldParameters(gp));
+        PhysicsState body = vehicle.getBody();
+        Random random = new Random(seed);
+        for (int n = 0; n < body.nodeCount; n++) {
+            body.x[n] += 30.0 * (random.nextDouble() - 0.5);
+            body.y[n] += 30.0 * (random.nextDouble() - 0.5);
+        }
+        for (int n = 0; n < body.springCount; n++) {
+            body.springActive[n] = true;
+        }
+        double worst = 0.0;
+        for (double limit : new double[]{0.0, 1.0 / (0.025 * 0.025)}) {
+            ScalarSpringKernel.INSTANCE.computeForces(body, limit);
+            double[] force = body.springForce.clone();
+            double[] dirX = body.springDirX.clone();
+            double[] dirY = body.springDirY.clone();
+            candidate.computeForces(body, limit);
+            for (int n = 0; n < body.springCount; n++) {
+                worst = Math.max(worst, relativeError(body.springForce[n], force[n]));
+                worst = Math.max(worst, relativeError(body.springDirX[n], dirX[n]));
+                worst = Math.max(worst, relativeError(body.springDirY[n], dirY[n]));
+            }
+        }
+        return worst;
+    }
+
+    private static double relativeError(double value, double reference) {
+        if (Double.isNaN(value) || Double.isNaN(reference)) {
+            return Double.isNaN(value) && Double.isNaN(reference) ? 0.0 : Double.NaN;
+        }
+        return Math.abs(value - reference) / Math.max(1.0, Math.abs(reference));
+    }
+
+    /**
+     * Checks the SIMD kernel against the scalar kernel and compares their speed, for testing.
+     * Run with {@code --add-modules jdk.incubator.vector}.
+     *
+     * @param args The command line arguments (unused).
+     */
+    public static void main(String[] args) {
+        setVectorRequested(true);
+        SpringKernel vector = get();
+        if (vector == ScalarSpringKernel.INSTANCE) {
+            V2RApp.logger.error("SIMD kernel not available");
+            return;
+        }
+        double worst = 0.0;
+        for (long seed = 0; seed < 100; seed++) {
+            worst = Math.max(worst, compare(vector, seed));
+        }
+        V2RApp.logger.info("{}: largest relative difference {} over 100 vehicles", vector.name(), worst);
+
+        GameParams gp = new GameParams();
+        PhysicsState body = new PlayerVehicle(gp, new WorldParameters(gp)).getBody();
+        for (SpringKernel k : new SpringKernel[]{ScalarSpringKernel.INSTANCE, vector}) {
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < 1_000_000; i++) {
+                    k.computeForces(body, 0.0);
+                }
+                V2RApp.logger.info("{}: {} ns per vehicle", k.name(),
+                        String.format("%.1f", (System.nanoTime() - start) / 1e6));
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The {@code Terrain} class holds the classified terrain of a level, one character per pixel of the
+ * terrain data image ({@code Bild}).
+ * <p>
+ * The characters are the ones produced by {@link TerrainLoader}: 'l' for air, 'w' for water, 'e' for ground,
+ * 'f' and 'E' for the two extra elements and 'F' for any other colour. They are stored as 4-bit codes; how the
+ * codes are kept is up to the subclass: {@link PackedTerrain} holds the whole level in memory, while
+ * {@link ChunkedTerrain} decodes pieces of very large levels when they are needed.
+ * </p>
+ * <p>
+ * <i>Note: A terrain is never modified after it has been loaded, so one instance can be shared by
+ * any number of simulations.</i>
+ * </p>
+ *
+ * @since 1.0
+ */
+public abstract class Terrain {
+    /**
+     * The terrain character of each code.
+     */
+    static final char[] TYPES = {'F', 'l', 'w', 'e', 'f', 'E'};
+    /**
+     * One bit per code, set for the codes a vehicle cannot move through (everything but air and water).
+     */
+    private static final int SOLID_CODES = 0b111001;
+    /**
+     * The width of the terrain in pixels.
+     */
+    private final int width;
+    /**
+     * The height of the terrain in pixels.
+     */
+    private final int height;
+    /**
+     * The signed distance field of the terrain, built on first use.
+     */
+    private DistanceField distanceField = null;
+    /**
+     * The memory the distance field may take in bytes; a larger terrain has none.
+     */
+    private long budgetBytes = Long.MAX_VALUE;
+
+    /**
+     * Constructs a {@code Terrain} of the given size.
+     *
+     * @param width  The width of the terrain in pixels.
+     * @param height The height of the terrain in pixels.
+     */
+    protected Terrain(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Checks the type of terrain at a specific position on the level map.
+     *
+     * @param x The x-coordinate to check.
+     * @param y The y-coordinate to check.
+     * @return The type of terrain ('e' for out of bounds, 'g' for ground, 'w' for water, etc.).
+     */
+    public char checkPosition(int x, int y) {
+        // A negative value in any of the four means out of bounds, so one test covers all of them
+        if ((x | y | (this.width - 1 - x) | (this.height - 1 - y)) < 0) {
+            return 'e';
+        }
+        return TYPES[code(x, y)];
+    }
+
+    /**
+     * Checks whether a position is solid, meaning neither air nor water. Everything outside the terrain is solid.
+     *
+     * @param x The x-coordinate to check.
+     * @param y The y-coordinate to check.
+     * @return {@code true} if a vehicle cannot move through the position.
+     */
+    public boolean isSolid(int x, int y) {
+        if ((x | y | (this.width - 1 - x) | (this.height - 1 - y)) < 0) {
+            return true;
+        }
+        return ((SOLID_CODES >> code(x, y)) & 1) != 0;
+    }
+
+    /**
+     * Checks whether a terrain character is solid, meaning neither air nor water.
+     *
+     * @param c The terrain character.
+     * @return {@code true} if a vehicle cannot move through it.
+     */
+    public static boolean isSolid(char c) {
+        return c != 'l' && c != 'w';
+    }
+
+    /**
+     * Copies a piece of a row into an array. Pixels outside the terrain read as 'e'.
+     *
+     * @param y      The row.
+     * @param x      The first column.
+     * @param length The number of pixels to copy.
+     * @param out    Receives the terrain characters, starting at index 0.
+     */
+    public void getRow(int y, int x, int length, char @NotNull [] out) {
+        for (int i = 0; i < length; i++) {
+            out[i] = checkPosition(x + i, y);
+        }
+    }
+
+    /**
+     * Copies a piece of a column into an array. Pixels outside the terrain read as 'e'.
+     *
+     * @param x      The column.
+     * @param y      The first row.
+     * @param length The number of pixels to copy.
+     * @param out    Receives the terrain characters, starting at index 0.
+     */
+    public void getColumn(int x, int y, int length, char @NotNull [] out) {
+        for (int i = 0; i < length; i++) {
+            out[i] = checkPosition(x, y + i);
+        }
+    }
+
+    /**
+     * Hints that a region of the terrain will be needed soon. Does nothing for terrains held in memory in full.
+     *
+     * @param x      The left edge of the region.
+     * @param y      The top edge of the region.
+     * @param width  The width of the region.
+     * @param height The height of the region.
+     */
+    public void prefetch(int x, int y, int width, int height) {
+        // Everything is in memory already
+    }
+
+    /**
+     * Sets the memory the distance field may take, the terrain budget of the level.
+     *
+     * @param budgetBytes The budget in bytes.
+     */
+    synchronized void setBudget(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Returns the signed distance field of the terrain, building it on the first call.
+     * The field is shared by every simulation using this terrain.
+     * <p>
+     * The field takes {@value Float#BYTES} bytes per pixel, and building it takes three times as much for a
+     * while. If the field would take more than the terrain budget, there is none, however the terrain is held.
+     * </p>
+     *
+     * @return The distance field, or {@code null} if this terrain is too large to have one.
+     */
+    public synchronized DistanceField getDistanceField() {
+        if (distanceField == null) {
+            if ((long) Float.BYTES * width * height > budgetBytes) {
+                if (V2RApp.debug) {
+                    V2RApp.logger.debug("Terrain {}x{} too large for a distance field", width, height);
+                }
+                return null;
+            }
+            long start = System.nanoTime();
+            distanceField = new DistanceField(this);
+            if (V2RApp.debug) {
+                V2RApp.logger.debug("Distance field {}x{} built in {} ms", width, height,
+                        (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+        return distanceField;
+    }
+
+    /**
+     * Returns roughly how much heap memory the terrain takes, including its distance field once that has been
+     * built. Used by caches that keep terrains around.
+     *
+     * @return The size in bytes.
+     */
+    public long getMemoryBytes() {
+        return (long) ((width + 1) / 2) * height + getDistanceFieldBytes();
+    }
+
+    /**
+     * Returns how much memory the distance field takes.
+     *
+     * @return The size in bytes, 0 until the field has been built.
+     */
+    synchronized long getDistanceFieldBytes() {
+        return distanceField != null ? (long) Float.BYTES * width * height : 0;
+    }
+
+    /**
+     * Returns the code of a pixel inside the terrain.
+     *
+     * @param x The x-coordinate of the pixel, from 0 to {@code width - 1}.
+     * @param y The y-coordinate of the pixel, from 0 to {@code height - 1}.
+     * @return The 4-bit code, an index into {@link #TYPES}.
+     */
+    abstract int code(int x, int y);
+
+    /**
+     * Returns the code of a terrain character.
+     *
+     * @param c The terrain character.
+     * @return The 4-bit code.
+     * @throws IllegalArgumentException If the character is not a terrain character.
+     */
+    static int codeOf(char c) {
+        for (int code = 0; code < TYPES.length; code++) {
+            if (TYPES[code] == c) {
+                return code;
+            }
+        }
+        throw new IllegalArgumentException("Not a terrain character: " + c);
+    }
+
+    /**
+     * Returns the width of the terrain.
+     *
+     * @return The width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the terrain.
+     *
+     * @return The height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+}
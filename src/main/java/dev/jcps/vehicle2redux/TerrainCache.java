@@ -0,0 +1,241 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * A utility class that keeps the classified terrain of a level in a binary file next to its terrain data image,
+ * so that the image does not have to be decoded and classified every time the level starts.
+ * <p>
+ * The cache file is the image file name followed by {@value #SUFFIX}. It holds a header and the packed codes of
+ * a {@link PackedTerrain}:
+ * </p>
+ * <ul>
+ *     <li>{@code int} magic number and {@code int} format version</li>
+ *     <li>{@code int} width and {@code int} height of the terrain</li>
+ *     <li>{@code long} length and {@code long} modification time of the image it was made from</li>
+ *     <li>the packed codes, {@code (width + 1) / 2} bytes per row</li>
+ * </ul>
+ * <p>
+ * A cache whose header does not match the image and the level size is ignored and written again. The codes are
+ * not checked when the cache is mapped, as that would read the whole file; {@link MappedTerrain} checks each code
+ * as it is read instead.
+ * </p>
+ *
+ * @see MappedTerrain
+ * @see TerrainLoader
+ * @since 1.0
+ */
+public class TerrainCache {
+    /**
+     * The suffix added to the image file name.
+     */
+    static final String SUFFIX = ".terrain";
+    /**
+     * "V2RT".
+     */
+    private static final int MAGIC = 0x56325254;
+    /**
+     * Raise when the layout or the classification of the pixels changes, so old caches are rebuilt.
+     */
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    /**
+     * The memory the decoded pixels of one band may take when a cache is built band by band.
+     */
+    private static final long BAND_BYTES = 32L * 1024 * 1024;
+
+    private TerrainCache() {
+        // hidden
+    }
+
+    /**
+     * Returns the cache file of a terrain data image.
+     *
+     * @param image The terrain data image.
+     * @return The cache file, which may not exist.
+     */
+    static @NotNull File cacheFile(@NotNull File image) {
+        return new File(image.getPath() + SUFFIX);
+    }
+
+    /**
+     * Maps the cached terrain of an image, if there is a cache and it is up to date.
+     *
+     * @param image  The terrain data image.
+     * @param width  The width of the terrain in pixels.
+     * @param height The height of the terrain in pixels.
+     * @return The cached terrain, or {@code null} if there is no usable cache.
+     */
+    static @Nullable Terrain read(@NotNull File image, int width, int height) {
+        File file = cacheFile(image);
+        if (!file.isFile()) {
+            return null;
+        }
+        long size = HEADER_BYTES + (long) ((width + 1) / 2) * height;
+        if (size - HEADER_BYTES > Integer.MAX_VALUE) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() != size) {
+                return null;
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION ||
+                    map.getInt(8) != width || map.getInt(12) != height ||
+                    map.getLong(16) != image.length() || map.getLong(24) != image.lastModified()) {
+                if (V2RApp.debug) V2RApp.logger.debug("Terrain cache {} is out of date", file);
+                return null;
+            }
+            return new MappedTerrain(map.slice(HEADER_BYTES, (int) (size - HEADER_BYTES)), width, height);
+        } catch (IOException e) {
+            V2RApp.logger.warn("Could not read terrain cache {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the cache of an image. The file is written under a temporary name and then renamed, so a cache that
+     * was only partly written is never read. Failing to write the cache is logged but otherwise ignored.
+     *
+     * @param image   The terrain data image the terrain was made from.
+     * @param terrain The classified terrain.
+     */
+    static void write(@NotNull File image, @NotNull PackedTerrain terrain) {
+        Path target = cacheFile(image).toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        ByteBuffer header = header(image, terrain.getWidth(), terrain.getHeight());
+        try {
+            try (FileChannel channel = open(temp)) {
+                ByteBuffer cells = ByteBuffer.wrap(terrain.cells);
+                while (header.hasRemaining() || cells.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, cells});
+                }
+            }
+            commit(temp, target);
+        } catch (IOException e) {
+            V2RApp.logger.warn("Could not write terrain cache {}", target, e);
+            delete(temp);
+        }
+    }
+
+    /**
+     * Builds the cache of an image too large to classify on the heap as a whole. The image is decoded in bands of
+     * rows, each classified and written before the next one is read, so only one band is in memory at a time.
+     * <p>
+     * <i>Note: Some formats, PNG among them, read every row above a band to decode it, so building the cache of a
+     * very tall image reads it several times over. This is done once; afterwards the level maps the cache.</i>
+     * </p>
+     *
+     * @param image  The terrain data image.
+     * @param width  The width of the terrain in pixels.
+     * @param height The height of the terrain in pixels.
+     * @return {@code true} if the cache was written.
+     */
+    static boolean writeInBands(@NotNull File image, int width, int height) {
+        int stride = (width + 1) / 2;
+        if ((long) stride * height > Integer.MAX_VALUE) {
+            return false;
+        }
+        Path target = cacheFile(image).toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (ImageInputStream in = ImageIO.createImageInputStream(image)) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported terrain image: " + image);
+            }
+            ImageReader reader = readers.next();
+            try (FileChannel channel = open(temp)) {
+                reader.setInput(in, false, true);
+                int imageWidth = Math.min(width, reader.getWidth(0));
+                int imageHeight = Math.min(height, reader.getHeight(0));
+                int bandRows = (int) Math.max(1, Math.min(height, BAND_BYTES / (4L * width)));
+                writeFully(channel, header(image, width, height));
+                int[] rgb = new int[imageWidth];
+                for (int y0 = 0; y0 < height; y0 += bandRows) {
+                    int rows = Math.min(bandRows, height - y0);
+                    // Pixels outside the image stay 'F', code 0
+                    byte[] cells = new byte[stride * rows];
+                    int h = Math.min(rows, imageHeight - y0);
+                    if (imageWidth > 0 && h > 0) {
+                        ImageReadParam param = reader.getDefaultReadParam();
+                        param.setSourceRegion(new Rectangle(0, y0, imageWidth, h));
+                        BufferedImage band = reader.read(0, param);
+                        for (int y = 0; y < h; y++) {
+                            band.getRGB(0, y, imageWidth, 1, rgb, 0, imageWidth);
+                            for (int x = 0; x < imageWidth; x++) {
+                                int pixel = rgb[x];
+                                int code = Terrain.codeOf(TerrainLoader.mapPixelToChar((pixel >> 16) & 0xFF,
+                                        (pixel >> 8) & 0xFF, pixel & 0xFF));
+                                cells[y * stride + (x >> 1)] |= (byte) (code << ((x & 1) << 2));
+                            }
+                        }
+                    }
+                    writeFully(channel, ByteBuffer.wrap(cells));
+                }
+            } finally {
+                reader.dispose();
+            }
+            commit(temp, target);
+            return true;
+        } catch (IOException e) {
+            V2RApp.logger.warn("Could not write terrain cache {}", target, e);
+            delete(temp);
+            return false;
+        }
+    }
+
+    private static @NotNull ByteBuffer header(@NotNull File image, int width, int height) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION)
+                .putInt(width).putInt(height)
+                .putLong(image.length()).putLong(image.lastModified())
+                .flip();
+        return header;
+    }
+
+    private static @NotNull FileChannel open(@NotNull Path temp) throws IOException {
+        return FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    private static void writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Renames a fully written cache to its final name.
+     */
+    private static void commit(@NotNull Path temp, @NotNull Path target) throws IOException {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (V2RApp.debug) V2RApp.logger.debug("Wrote terrain cache {}", target);
+    }
+
+    private static void delete(@NotNull Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+            // nothing left to do
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A utility class that reads the terrain data image ({@code Bild}) of a level and classifies every pixel
+ * into a {@link Terrain}. It does not need a display, so it can be used by headless simulations.
+ *
+ * @since 1.0
+ */
+public class TerrainLoader {
+    /**
+     * The number of rows mapped by one task when the pixels are mapped in parallel.
+     */
+    private static final int BAND_ROWS = 32;
+
+    private TerrainLoader() {
+        // hidden
+    }
+
+    /**
+     * Loads and classifies the terrain of the level described by the given parameters.
+     * <p>
+     * The terrain is mapped from its {@link TerrainCache} if that is up to date. If not, and the packed terrain
+     * would take more memory than {@code terrainBudget} (in megabytes) allows, the cache is built band by band and
+     * mapped; only if it cannot be written is a {@link ChunkedTerrain} returned, which decodes the image piece by
+     * piece as it is needed. Otherwise the image is decoded and the cache is written for the next time.
+     * The distance field of the terrain is held to the same budget.
+     * </p>
+     *
+     * @param gp The level parameters; {@code Bild}, {@code Bild_w}, {@code Bild_h} and {@code terrainBudget} are used.
+     * @return The classified terrain.
+     * @throws IOException If the terrain data image is missing or cannot be read.
+     */
+    public static @NotNull Terrain load(@NotNull GameParams gp) throws IOException {
+        Terrain terrain = decode(gp.getSettings());
+        terrain.setBudget(gp.getSettings().terrainBudget * 1024L * 1024L);
+        return terrain;
+    }
+
+    /**
+     * Loads the terrain as described for {@link #load(GameParams)}.
+     *
+     * @param settings The settings of the level.
+     * @return The classified terrain.
+     * @throws IOException If the terrain data image is missing or cannot be read.
+     */
+    private static @NotNull Terrain decode(@NotNull LevelSettings settings) throws IOException {
+        String imagePath = settings.image;
+        if (imagePath == null) {
+            throw new IOException("No terrain image (Bild) set for this level");
+        }
+        int width = settings.width;
+        int height = settings.height;
+        long budget = settings.terrainBudget * 1024L * 1024L;
+        File imageFile = new File(imagePath);
+        Terrain cached = TerrainCache.read(imageFile, width, height);
+        if (cached != null) {
+            return cached;
+        }
+        if ((long) ((width + 1) / 2) * height > budget) {
+            // A mapped cache is off the heap, so build one in bands rather than decode chunks over and over
+            if (TerrainCache.writeInBands(imageFile, width, height)) {
+                cached = TerrainCache.read(imageFile, width, height);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            if (V2RApp.debug) V2RApp.logger.debug("Terrain {}x{} over budget, loading in chunks", width, height);
+            return new ChunkedTerrain(imageFile, width, height, budget);
+        }
+        BufferedImage tileImg = ImageIO.read(imageFile);
+        if (tileImg == null) {
+            throw new IOException("Unsupported terrain image: " + imagePath);
+        }
+        PackedTerrain terrain = new PackedTerrain(width, height);
+        if (!mapIndexedPixels(tileImg, terrain)) {
+            processAndMapPixels(tileImg, terrain);
+        }
+        TerrainCache.write(imageFile, terrain);
+        return terrain;
+    }
+
+    /**
+     * Processes and maps pixels from the tile image to characters in the level map.
+     * Uses parallel processing for improved performance.
+     * <p>
+     * <b>Implementation details:</b><br>
+     * This function grabs the pixels from the tile image using PixelGrabber,
+     * maps each pixel to a character using the mapPixelToChar function and stores the rows in the level map.
+     * The rows are split into bands, each handled by one thread; rows do not share any storage, so no locking
+     * is needed.
+     * <i>Note: Ensure that the mapPixelToChar function is appropriately defined for accurate mapping.</i>
+     * <br><b>Example usage:<br></b>
+     * {@code processAndMapPixels(tileImg, terrain); // This function is typically called when initializing the level map.}
+     * <p><i>Note: Indexed images are handled faster by {@link #mapIndexedPixels(BufferedImage, PackedTerrain)};
+     * this is the path for every other kind of image.</i></p>
+     *
+     * @param tileImg The terrain data image.
+     * @param terrain The terrain to fill.
+     */
+    public static void processAndMapPixels(Image tileImg, @NotNull PackedTerrain terrain) {
+        int levelWidth = terrain.getWidth();
+        int levelHeight = terrain.getHeight();
+        int[] nArray = new int[levelWidth * levelHeight];
+
+        PixelGrabber pixelGrabber = new PixelGrabber(tileImg, 0, 0,
+                levelWidth, levelHeight, nArray, 0, levelWidth);
+
+        try {
+            pixelGrabber.grabPixels();
+        } catch (InterruptedException e) {
+            V2RApp.logger.error("Interrupted waiting for pixels!");
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        IntStream.range(0, (levelHeight + BAND_ROWS - 1) / BAND_ROWS).parallel().forEach(band -> {
+            byte[] codes = new byte[levelWidth];
+            int end = Math.min(levelHeight, (band + 1) * BAND_ROWS);
+            for (int y = band * BAND_ROWS; y < end; y++) {
+                for (int x = 0; x < levelWidth; x++) {
+                    int pixel = nArray[y * levelWidth + x];
+                    codes[x] = (byte) Terrain.codeOf(mapPixelToChar((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF,
+                            pixel & 0xFF));
+                }
+                terrain.setRow(y, codes);
+            }
+        });
+    }
+
+    /**
+     * Maps the pixels of an indexed image (like the GIFs of the levels) straight from its raster.
+     * <p>
+     * Each palette entry is classified once into a table, then the palette index of every pixel is read from the
+     * raw raster bytes and looked up, without unpacking any colours. The rows are filled in parallel bands without
+     * locking, like in {@link #processAndMapPixels(Image, PackedTerrain)}.
+     * </p>
+     * <p>
+     * Pixels outside the image are left as 'F', which is what the other path gives for them.
+     * </p>
+     *
+     * @param image   The terrain data image.
+     * @param terrain The terrain to fill.
+     * @return {@code true} if the image was mapped; {@code false} if it is not a byte-backed indexed image, in which
+     * case the terrain is unchanged.
+     */
+    static boolean mapIndexedPixels(@NotNull BufferedImage image, @NotNull PackedTerrain terrain) {
+        if (!(image.getColorModel() instanceof IndexColorModel palette) ||
+                !(image.getRaster().getDataBuffer() instanceof DataBufferByte buffer)) {
+            return false;
+        }
+        final int bits;
+        final int scanline;
+        final int bitOffset;
+        SampleModel sampleModel = image.getSampleModel();
+        if (sampleModel instanceof MultiPixelPackedSampleModel packed) {
+            bits = packed.getPixelBitStride();
+            scanline = packed.getScanlineStride();
+            bitOffset = packed.getDataBitOffset();
+        } else if (sampleModel instanceof PixelInterleavedSampleModel interleaved &&
+                interleaved.getNumBands() == 1 && interleaved.getPixelStride() == 1) {
+            bits = 8;
+            scanline = interleaved.getScanlineStride();
+            bitOffset = interleaved.getOffset(0, 0) * 8;
+        } else {
+            return false;
+        }
+
+        // Classify each palette entry once; indices past the palette read as black, like in PixelGrabber
+        final byte[] table = new byte[1 << bits];
+        for (int i = 0; i < table.length; i++) {
+            int rgb = i < palette.getMapSize() ? palette.getRGB(i) : 0;
+            table[i] = (byte) Terrain.codeOf(mapPixelToChar((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF));
+        }
+
+        final byte[] data = buffer.getData();
+        final int base = buffer.getOffset();
+        final int mask = (1 << bits) - 1;
+        final int originX = -image.getRaster().getSampleModelTranslateX();
+        final int originY = -image.getRaster().getSampleModelTranslateY();
+        final int width = Math.min(terrain.getWidth(), image.getWidth());
+        final int height = Math.min(terrain.getHeight(), image.getHeight());
+        IntStream.range(0, (height + BAND_ROWS - 1) / BAND_ROWS).parallel().forEach(band -> {
+            byte[] codes = new byte[terrain.getWidth()];
+            int end = Math.min(height, (band + 1) * BAND_ROWS);
+            for (int y = band * BAND_ROWS; y < end; y++) {
+                int row = base + (y + originY) * scanline;
+                for (int x = 0; x < width; x++) {
+                    int bit = bitOffset + (x + originX) * bits;
+                    int index = (data[row + (bit >> 3)] >> (8 - bits - (bit & 7))) & mask;
+                    codes[x] = table[index];
+                }
+                terrain.setRow(y, codes);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * <p>Maps RGB values of a pixel to a corresponding character based on predefined color constants.</p>
+     * <br><p>
+     * <b>Implementation details:</b><br>
+     * This function combines the RGB values of a pixel into a single integer representation.
+     * It then checks this integer value against predefined color constants to determine the corresponding character.
+     * </p><br>
+     * <p>Returns:
+     * <ul>
+     *     <li>'l' for air color</li>
+     *     <li>'w' for water color</li>
+     *     <li>'e' for ground color</li>
+     *     <li>'f' for color 'a'</li>
+     *     <li>'E' for color 'b'</li>
+     *     <li>'F' for any other color</li>
+     * </ul>
+     * </p>
+     * <p>
+     *     Example usage:<br>
+     *     {@code char mappedChar = mapPixelToChar(255, 0, 0); // Assuming red color}
+     *     <br>Result: 'F' since red is not one of the predefined colors
+     * </p>
+     * <p>
+     * <i>Note: Ensure that the color constants in GameConstants are appropriately defined for accurate mapping.</i>
+     *
+     * @param red   The red component of the pixel color (0-255).
+     * @param green The green component of the pixel color (0-255).
+     * @param blue  The blue component of the pixel color (0-255).
+     * @return The character mapped based on the predefined color constants.
+     */
+    static char mapPixelToChar(int red, int green, int blue) {
+        int pixelValue = (red << 16) | (green << 8) | blue;
+        if (pixelValue == GameConstants.AIR_COLOR) {
+            return 'l';
+        } else if (pixelValue == GameConstants.WATER_COLOR) {
+            return 'w';
+        } else if (pixelValue == GameConstants.GROUND_COLOR) {
+            return 'e';
+        } else if (pixelValue == GameConstants.ELEMENT_A) {
+            return 'f';
+        } else if (pixelValue == GameConstants.ELEMENT_B) {
+            return 'E';
+        }
+        return 'F';
+    }
+
+    /**
+     * Main method for testing: classifies the terrain data images given as arguments (or the ones in
+     * {@code Levels}) with the per-pixel locked mapping used before, with {@link #processAndMapPixels} and with
+     * {@link #mapIndexedPixels}, checks that all of them give the same terrain and logs how long each takes.
+     * The terrain cache is not used.
+     *
+     * @param args The terrain data images.
+     * @throws IOException If an image cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        final int rounds = 20;
+        File[] images = args.length > 0 ? Arrays.stream(args).map(File::new).toArray(File[]::new)
+                : new File("Levels").listFiles((dir, name) -> name.endsWith("_f.gif"));
+        if (images == null) {
+            return;
+        }
+        for (File image : images) {
+            BufferedImage tileImg = ImageIO.read(image);
+            if (tileImg == null) {
+                throw new IOException("Unsupported terrain image: " + image);
+            }
+            int w = tileImg.getWidth();
+            int h = tileImg.getHeight();
+            PackedTerrain locked = new PackedTerrain(w, h);
+            PackedTerrain rows = new PackedTerrain(w, h);
+            PackedTerrain indexed = new PackedTerrain(w, h);
+            long[] nanos = new long[3];
+            boolean fast = true;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                mapPixelsLocked(tileImg, locked);
+                nanos[0] += System.nanoTime() - start;
+                start = System.nanoTime();
+                processAndMapPixels(tileImg, rows);
+                nanos[1] += System.nanoTime() - start;
+                start = System.nanoTime();
+                fast = mapIndexedPixels(tileImg, indexed);
+                nanos[2] += System.nanoTime() - start;
+            }
+            boolean same = Arrays.equals(locked.cells, rows.cells) &&
+                    (!fast || Arrays.equals(locked.cells, indexed.cells));
+            V2RApp.logger.info("{} {}x{}: locked {} ms, rows {} ms, palette {}, same={}",
+                    image.getName(), w, h, String.format("%.2f", nanos[0] / 1e6 / rounds),
+                    String.format("%.2f", nanos[1] / 1e6 / rounds),
+                    fast ? String.format("%.2f ms", nanos[2] / 1e6 / rounds) : "not indexed", same);
+        }
+    }
+
+    /**
+     * The mapping used before {@link #processAndMapPixels} filled whole rows, kept for {@link #main}: every pixel
+     * is set on its own under a lock shared by all threads.
+     *
+     * @param tileImg The terrain data image.
+     * @param terrain The terrain to fill.
+     */
+    private static void mapPixelsLocked(Image tileImg, @NotNull PackedTerrain terrain) {
+        int levelWidth = terrain.getWidth();
+        int levelHeight = terrain.getHeight();
+        int[] nArray = new int[levelWidth * levelHeight];
+        PixelGrabber pixelGrabber = new PixelGrabber(tileImg, 0, 0,
+                levelWidth, levelHeight, nArray, 0, levelWidth);
+        try {
+            pixelGrabber.grabPixels();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        IntStream.range(0, nArray.length).parallel().forEach(n -> {
+            int pixel = nArray[n];
+            char mappedChar = mapPixelToChar((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+            synchronized (terrain.cells) {
+                terrain.set(n % levelWidth, n / levelWidth, mappedChar);
+            }
+        });
+    }
+}
@@ -0,0 +1,174 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+
+/**
+ * A utility class that keeps small thumbnails of the level art ({@code Bild_c}) in files next to the images, so the
+ * level select does not have to decode the full images every time it is shown.
+ * <p>
+ * The thumbnail of an image is a PNG named like the image followed by {@value #SUFFIX}. It gets the modification
+ * time of the image it was made from; a thumbnail whose time differs from the image is made again.
+ * </p>
+ *
+ * @see LevelSelectPanel
+ * @since 1.0
+ */
+public class ThumbnailCache {
+    /**
+     * The suffix added to the image file name.
+     */
+    static final String SUFFIX = ".thumb.png";
+    /**
+     * The longest side of a thumbnail in pixels.
+     */
+    static final int SIZE = 200;
+
+    private ThumbnailCache() {
+        // hidden
+    }
+
+    /**
+     * Returns the thumbnail of an image, making it and writing it to disk if there is none or it is out of date.
+     * This reads files, so it should not be called on the event dispatch thread.
+     *
+     * @param image The level art.
+     * @return The thumbnail, or {@code null} if the image cannot be read.
+     */
+    static @Nullable BufferedImage get(@NotNull File image) {
+        File file = new File(image.getPath() + SUFFIX);
+        long modified = image.lastModified();
+        if (modified != 0 && file.lastModified() == modified) {
+            try {
+                BufferedImage thumbnail = ImageIO.read(file);
+                if (thumbnail != null) {
+                    return thumbnail;
+                }
+            } catch (IOException e) {
+                V2RApp.logger.warn("Could not read thumbnail {}", file, e);
+            }
+        }
+        BufferedImage thumbnail;
+        try {
+            thumbnail = create(image);
+        } catch (IOException e) {
+            if (V2RApp.debug) V2RApp.logger.warn("Error loading image: {} {}", image, e.getMessage());
+            return null;
+        }
+        write(file, thumbnail, modified);
+        return thumbnail;
+    }
+
+    /**
+     * Calculates the size of an image scaled to fit within a {@value #SIZE} pixel square while preserving the
+     * original aspect ratio.
+     *
+     * @param originalWidth  The original width of the image.
+     * @param originalHeight The original height of the image.
+     * @return An array containing the new width and height of the image after scaling.
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    static int @NotNull [] scaleImage(int originalWidth, int originalHeight) {
+        int newWidth;
+        int newHeight;
+
+        // Calculate new dimensions while preserving aspect ratio
+        if (originalWidth > originalHeight) {
+            // Landscape orientation
+            newWidth = SIZE;
+            newHeight = (int) ((double) originalHeight / originalWidth * SIZE);
+        } else {
+            // Portrait or square orientation
+            newHeight = SIZE;
+            newWidth = (int) ((double) originalWidth / originalHeight * SIZE);
+        }
+
+        return new int[]{Math.max(1, newWidth), Math.max(1, newHeight)};
+    }
+
+    /**
+     * Decodes an image at a reduced resolution and scales it down to a thumbnail.
+     * <p>
+     * Only every n-th pixel of every n-th row is decoded, keeping at least twice the thumbnail size, so a large
+     * image is never decoded in full; the rest of the way is done with bilinear filtering.
+     * </p>
+     *
+     * @param image The level art.
+     * @return The thumbnail.
+     * @throws IOException If the image cannot be read.
+     */
+    private static @NotNull BufferedImage create(@NotNull File image) throws IOException {
+        BufferedImage source;
+        try (ImageInputStream in = ImageIO.createImageInputStream(image)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image: " + image);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int step = Math.max(1, Math.max(reader.getWidth(0), reader.getHeight(0)) / (2 * SIZE));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                source = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+        int[] size = scaleImage(source.getWidth(), source.getHeight());
+        BufferedImage thumbnail = new BufferedImage(size[0], size[1], BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = thumbnail.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, size[0], size[1], null);
+        } finally {
+            g.dispose();
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Writes a thumbnail under a temporary name, renames it and gives it the modification time of its image.
+     * Failing to write it is logged but otherwise ignored.
+     *
+     * @param file      The thumbnail file.
+     * @param thumbnail The thumbnail.
+     * @param modified  The modification time of the image.
+     */
+    private static void write(@NotNull File file, @NotNull BufferedImage thumbnail, long modified) {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            if (!ImageIO.write(thumbnail, "png", temp.toFile())) {
+                throw new IOException("No PNG writer");
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (!file.setLastModified(modified)) {
+                throw new IOException("Could not set the modification time");
+            }
+            if (V2RApp.debug) V2RApp.logger.debug("Wrote thumbnail {}", target);
+        } catch (IOException e) {
+            V2RApp.logger.warn("Could not write thumbnail {}", target, e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // nothing left to do
+            }
+        }
+    }
+}
@@ -59,13 +59,17 @@ public class V2RApp extends JFrame implements TriggerListener {
      */
     public static boolean debug = false;
     /**
-     * The Timer instance for handling game events.
+     * The FramePacer instance running the game loop. It only runs while a level is played.
      */
-    private static Timer timer = null;
+    private static FramePacer pacer = null;
     /**
-     * The delay interval for the timer (in milliseconds).
+     * The target frame rate of the game loop, set with {@code --fps=<n>}.
      */
-    private static final int DELAY = 10;
+    static int frameRate = 100;
+    /**
+     * How long the game loop spins before each frame in microseconds, set with {@code --pacer-spin=<us>}.
+     */
+    static int spinMicros = (int) (FramePacer.SPIN_NANOS / 1000);
     /**
      * The MenuPanel instance representing the main menu of the game.
      * The menu provides options for starting the game, selecting a level, configuring options, and exiting the game.
@@ -111,10 +115,8 @@ public class V2RApp extends JFrame implements TriggerListener {
         prevLevel = -1;
 
         // Initialize game loop
-        timer = new Timer( // NOSONAR
-                DELAY, e -> update() /* Method to update game state */
-        );
-        timer.setInitialDelay(20);
+        pacer = new FramePacer(frameRate, this::update /* Method to update game state */);
+        pacer.setSpinNanos(spinMicros * 1000L);
 
         this.mp = new MenuPanel();
         this.optionsPanel = new OptionsPanel();
@@ -129,7 +131,7 @@ public class V2RApp extends JFrame implements TriggerListener {
             @Override
             public void windowClosing(WindowEvent e) {
                 // Clean up resources if needed
-                timer.stop(); // Stop the game loop
+                pacer.stop(); // Stop the game loop
                 dispose();    // Dispose the JFrame and exit the application
             }
 
@@ -157,7 +159,29 @@ public class V2RApp extends JFrame implements TriggerListener {
         for (String arg : args) {
             if (arg.startsWith("--debug")) {
                 V2RApp.debug = true;
-                break;
+            } else if (arg.startsWith("--simd")) {
+                SpringKernels.setVectorRequested(true);
+            } else if (arg.startsWith("--active-render")) {
+                Vehicle2.activeRender = true;
+            } else if (arg.startsWith("--fps=")) {
+                V2RApp.frameRate = readFlag("--fps", arg.substring(arg.indexOf('=') + 1), V2RApp.frameRate, 1, 1000);
+            } else if (arg.startsWith("--pacer-spin=")) {
+                V2RApp.spinMicros = readFlag("--pacer-spin", arg.substring(arg.indexOf('=') + 1), V2RApp.spinMicros,
+                        0, 100_000);
+            } else if (arg.startsWith("--internal-res=")) {
+                String[] size = arg.substring(arg.indexOf('=') + 1).split("x");
+                Vehicle2.internalWidth = readFlag("--internal-res", size[0], Vehicle2.internalWidth, 0, 16384);
+                if (size.length > 1) {
+                    Vehicle2.internalHeight = readFlag("--internal-res", size[1], Vehicle2.internalHeight, 0, 16384);
+                }
+            } else if (arg.startsWith("--scale-filter=")) {
+                try {
+                    Vehicle2.scaleInterpolation = FrameScaler.interpolation(arg.substring(arg.indexOf('=') + 1));
+                } catch (IllegalArgumentException e) {
+                    V2RApp.logger.warn("{}, keeping the default", e.getMessage());
+                }
+            } else if (arg.startsWith("--asset-cache=")) {
+                LevelAssetCache.SHARED.setBudget(Long.parseLong(arg.substring(arg.indexOf('=') + 1)) * 1024L * 1024L);
             }
         }
         V2RApp v2r = new V2RApp();
@@ -174,6 +198,46 @@ public class V2RApp extends JFrame implements TriggerListener {
         gameState = MENU_PANEL;
         v2r.revalidate();
         v2r.repaint();
+        v2r.loadLevelMaps();
+    }
+
+    /**
+     * Reads a whole number given on the command line. A malformed number or one outside its range is logged as a
+     * warning and the default is kept, so a typo does not stop the game from starting.
+     *
+     * @param flag     The name of the flag, for the warning.
+     * @param value    The number as given.
+     * @param fallback The value kept if the number cannot be used.
+     * @param min      The smallest value allowed.
+     * @param max      The largest value allowed.
+     * @return The number, or the fallback.
+     */
+    static int readFlag(@NotNull String flag, @NotNull String value, int fallback, int min, int max) {
+        try {
+            int result = Integer.parseInt(value.trim());
+            if (result >= min && result <= max) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below, like a number out of range
+        }
+        V2RApp.logger.warn("{}={} is not a whole number from {} to {}, using {}", flag, value, min, max, fallback);
+        return fallback;
+    }
+
+    /**
+     * Parses the level files in the background and adds each level to the game and the level select as soon as
+     * it is ready, in order, so the menu can be used while a large level pack is still being read.
+     * The list of levels is only changed on the event dispatch thread.
+     */
+    private void loadLevelMaps() {
+        Thread loader = new Thread(() -> LevelUtilities.streamLevelMaps().forEach(map ->
+                SwingUtilities.invokeLater(() -> {
+                    getVehicle2r().maps.add(map);
+                    levelSelectPanel.addLevel(map);
+                })), "level-discovery");
+        loader.setDaemon(true);
+        loader.start();
     }
 
     private void centerWindow(int w) {
@@ -204,8 +268,8 @@ public class V2RApp extends JFrame implements TriggerListener {
             if (getVehicle2r().isRunning()) {
                 getVehicle2r().run();
             } else {
-                // Stop the timer from running a duplicate loop
-                timer.stop();
+                // Stop the pacer from running a duplicate loop
+                pacer.stop();
 
                 if (prevLevel != -2 && prevLevel < getVehicle2r().getCurrentLevel()) {
                     getVehicle2r().setCurrentLevel(getVehicle2r().getCurrentLevel() + 1);
@@ -215,7 +279,8 @@ public class V2RApp extends JFrame implements TriggerListener {
                 if (getVehicle2r().getCurrentLevel() < getVehicle2r().maps.size()) {
                     if (getVehicle2r().gp != getVehicle2r().maps.get(getVehicle2r().getCurrentLevel()).lp) {
                         getVehicle2r().init();
-                        timer.start();
+                        getVehicle2r().preloadNextLevel();
+                        pacer.start();
                     } else {
                         returnToMenu();
                     }
@@ -225,7 +290,7 @@ public class V2RApp extends JFrame implements TriggerListener {
             }
         }
 
-        if (gameState == MENU_PANEL && timer.isRunning()) timer.stop();
+        if (gameState == MENU_PANEL && pacer.isRunning()) pacer.stop();
 
         repaint();
     }
@@ -246,7 +311,7 @@ public class V2RApp extends JFrame implements TriggerListener {
      * Initiates the process of starting the game.
      * If there are no maps available, an error message is displayed to the user.
      * Otherwise, the game state is set to GAME_PANEL, the game is initialised,
-     * and the game loop timer is started.
+     * and the game loop pacer is started.
      */
     public void startGame() {
         // Simple protection for no maps
@@ -257,7 +322,11 @@ public class V2RApp extends JFrame implements TriggerListener {
             getVehicle2r().screenWidth = this.getWidth();
             getVehicle2r().screenHeight = this.getHeight();
             getVehicle2r().init();
-            timer.start();
+            // Levels picked from the level select are played on their own, so there is no next level to load
+            if (prevLevel != -2) {
+                getVehicle2r().preloadNextLevel();
+            }
+            pacer.start();
             this.requestFocusInWindow();
         } else {
             JOptionPane.showMessageDialog(null,
@@ -283,7 +352,7 @@ public class V2RApp extends JFrame implements TriggerListener {
                 System.exit(0);
             }
             if (gameState == OPTIONS_PANEL || gameState == SELECT_PANEL || gameState == BEST_TIMES) {
-                timer.stop();
+                pacer.stop();
                 if (gameState == OPTIONS_PANEL) {
                     int newSize = Integer.parseInt(message.substring(message.lastIndexOf(':') + 1));
                     switch (newSize) {
@@ -298,7 +367,7 @@ public class V2RApp extends JFrame implements TriggerListener {
                 this.add(this.mp);
             }
             if (gameState == GAME_PANEL) {
-                timer.stop();
+                pacer.stop();
                 gameState = MENU_PANEL;
                 getVehicle2r().setCurrentLevel(0);
                 prevLevel = -1;
@@ -0,0 +1,64 @@
+package dev.jcps.vehicle2redux;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The {@code VectorSpringKernel} computes several springs at once in the SIMD lanes of the CPU, using the
+ * incubating Vector API.
+ * <p>
+ * The node coordinates of each batch of springs are gathered through {@link PhysicsState#springA} and
+ * {@link PhysicsState#springB}. Inactive springs are computed along with the others and ignored afterwards, which
+ * is cheaper than masking them. The springs left after the last full batch are computed by the
+ * {@link ScalarSpringKernel}.
+ * </p>
+ * <p>
+ * <i>Note: This class needs the {@code jdk.incubator.vector} module at run time
+ * ({@code --add-modules jdk.incubator.vector}). Only {@link SpringKernels} refers to it, and only after checking
+ * that the module is present.</i>
+ * </p>
+ *
+ * @see SpringKernels
+ * @since 1.0
+ */
+final class VectorSpringKernel implements SpringKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void computeForces(@NotNull PhysicsState body, double stiffnessLimit) {
+        final double[] px = body.x;
+        final double[] py = body.y;
+        final double[] invMass = body.invMass;
+        final int[] springA = body.springA;
+        final int[] springB = body.springB;
+        final int upper = SPECIES.loopBound(body.springCount);
+        final DoubleVector limit = DoubleVector.broadcast(SPECIES, stiffnessLimit);
+        int n = 0;
+        for (; n < upper; n += SPECIES.length()) {
+            DoubleVector ax = DoubleVector.fromArray(SPECIES, px, 0, springA, n);
+            DoubleVector ay = DoubleVector.fromArray(SPECIES, py, 0, springA, n);
+            DoubleVector bx = DoubleVector.fromArray(SPECIES, px, 0, springB, n);
+            DoubleVector by = DoubleVector.fromArray(SPECIES, py, 0, springB, n);
+            DoubleVector k = DoubleVector.fromArray(SPECIES, body.stiffness, n);
+            if (stiffnessLimit > 0.0) {
+                DoubleVector invA = DoubleVector.fromArray(SPECIES, invMass, 0, springA, n);
+                DoubleVector invB = DoubleVector.fromArray(SPECIES, invMass, 0, springB, n);
+                k = k.min(limit.div(invA.add(invB)));
+            }
+            DoubleVector dx = ax.sub(bx);
+            DoubleVector dy = ay.sub(by);
+            DoubleVector len = dx.mul(dx).add(dy.mul(dy)).sqrt();
+            DoubleVector rest = DoubleVector.fromArray(SPECIES, body.restLength, n);
+            k.mul(len.sub(rest)).intoArray(body.springForce, n);
+            dx.div(len).intoArray(body.springDirX, n);
+            dy.div(len).intoArray(body.springDirY, n);
+        }
+        ScalarSpringKernel.computeRange(body, stiffnessLimit, n, body.springCount);
+    }
+
+    @Override
+    public @NotNull String name() {
+        return "vector (" + SPECIES.length() + " lanes)";
+    }
+}
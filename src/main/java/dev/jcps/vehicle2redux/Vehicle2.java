@@ -6,7 +6,6 @@ import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.awt.image.PixelGrabber;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
@@ -14,12 +13,15 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
-import java.util.stream.IntStream;
 
 import static java.lang.Integer.parseInt;
 
 /**
  * Represents the main panel for the Vehicle2 game functions and implements ActionListener for event handling.
+ * <p>
+ * The physics of the level run in a {@link Simulation}; this panel turns keyboard events into {@link InputFrame}s,
+ * steps the simulation and draws its state.
+ * </p>
  */
 public class Vehicle2 extends JPanel implements ActionListener {
     // Fields
@@ -28,9 +30,26 @@ public class Vehicle2 extends JPanel implements ActionListener {
      */
     static LinkedHashMap<String, String> levelTimes;
     /**
-     * The delay time for staying in the goal state (in milliseconds).
+     * Whether frames are drawn with active rendering on a {@link GameCanvas} rather than copied by Swing.
      */
-    private static final long DELAY = 5000; // 5 seconds: Time to stay in the goal
+    static boolean activeRender = false;
+    /**
+     * The width the game is drawn at before it is scaled to the window, set with {@code --internal-res};
+     * 0 draws at the size of the window.
+     */
+    static int internalWidth = 0;
+    /**
+     * The height the game is drawn at before it is scaled to the window; 0 keeps the shape of the window.
+     */
+    static int internalHeight = 0;
+    /**
+     * How a frame drawn at the internal resolution is scaled to the window, set with {@code --scale-filter}.
+     */
+    static Object scaleInterpolation = RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR;
+    /**
+     * The maximum number of physics steps run for one frame before the game is allowed to fall behind.
+     */
+    private static final int MAX_STEPS_PER_FRAME = 25;
     /**
      * The list of TriggerListeners for handling game events.
      */
@@ -65,10 +84,6 @@ public class Vehicle2 extends JPanel implements ActionListener {
      * Represents the state of the Shift key.
      */
     boolean shiftPressed = false;
-    /**
-     * A counter for game events.
-     */
-    int gameCounter = 0;
     /**
      * Indicates the readiness of graphics.
      */
@@ -81,6 +96,14 @@ public class Vehicle2 extends JPanel implements ActionListener {
      * The height of the screen.
      */
     int screenHeight;
+    /**
+     * The width of the window, which differs from that of the screen when drawing at an internal resolution.
+     */
+    int windowWidth;
+    /**
+     * The height of the window.
+     */
+    int windowHeight;
     /**
      * The x-coordinate of the mouse.
      */
@@ -89,10 +112,6 @@ public class Vehicle2 extends JPanel implements ActionListener {
      * The y-coordinate of the mouse.
      */
     int mouseY = 0;
-    /**
-     * The start time of the current level.
-     */
-    long levelStartTime;
     /**
      * The graphics object for rendering.
      */
@@ -101,42 +120,67 @@ public class Vehicle2 extends JPanel implements ActionListener {
      * The background image.
      */
     private transient Image imgBG;
+    /**
+     * Draws the frames of the current level, made when its first frame is drawn.
+     */
+    private transient ScenePainter painter;
     /**
      * The screen buffer image.
      */
     private transient Image screenBuffer;
     /**
-     * The tile image.
+     * The canvas frames are shown on with active rendering, or {@code null} if Swing paints them.
+     */
+    private transient GameCanvas canvas;
+    /**
+     * Scales frames drawn at the internal resolution to the window, or {@code null} if they are drawn at its size.
+     */
+    private transient FrameScaler scaler;
+    /**
+     * The headless simulation of the current level. This panel only feeds it input and draws its state.
      */
-    private transient Image tileImg;
+    transient Simulation sim;
     /**
-     * The media tracker for loading images.
+     * Steps {@link #sim} on its own thread and publishes the snapshots drawn by this panel.
      */
-    private MediaTracker tracker;
+    private transient SimulationRunner runner;
     /**
-     * The player vehicle object.
+     * The x-coordinates of the nodes in the frame being drawn, between the last two steps.
      */
-    transient PlayerVehicle pVehicle;
+    private double[] drawX = new double[0];
     /**
-     * The world parameters object.
+     * The y-coordinates of the nodes in the frame being drawn.
      */
-    transient WorldParameters worldParameters;
+    private double[] drawY = new double[0];
     /**
-     * The x-coordinate of the level time.
+     * Loads the next level in the background while the current one is played.
      */
-    double lxt = 0.0;
+    private final transient LevelPreloader preloader = new LevelPreloader();
     /**
-     * The y-coordinate of the level time.
+     * The message shown for the zone entered last, or {@code null} if there is none.
      */
-    double lyt = 0.0;
+    private String zoneMessage = null;
     /**
-     * The start time of the game instance.
+     * The level time in milliseconds the zone message is shown until.
      */
-    long startTime = System.currentTimeMillis();
+    private long zoneMessageUntil = 0;
     /**
-     * Represents whether the vehicle is inside the goal.
+     * How long a zone message is shown in milliseconds of level time.
      */
-    boolean insideGoal = false;
+    private static final long ZONE_MESSAGE_MILLIS = 2000;
+    /**
+     * The input collected from the keyboard since the previous physics step. Only touched while holding its lock,
+     * as the simulation thread takes it from the key listeners.
+     */
+    final transient InputFrame input = new InputFrame();
+    /**
+     * The x-coordinate of the top-left corner of the visible part of the level.
+     */
+    int viewportX = 0;
+    /**
+     * The y-coordinate of the top-left corner of the visible part of the level.
+     */
+    int viewportY = 0;
 
     /**
      * Constructs a new instance of the Vehicle2 class.
@@ -146,7 +190,7 @@ public class Vehicle2 extends JPanel implements ActionListener {
     public Vehicle2() {
         setCurrentLevel(0); // Set the initial level to 0
         levelTimes = new LinkedHashMap<>(); // NOSONAR Initialize the levelTimes HashMap
-        maps = LevelUtilities.getLevelMaps(); // Retrieve level maps using LevelUtilities and set the maps variable
+        maps = new ArrayList<>(); // Filled by V2RApp as the level files are parsed
         setSize(800, 600); // Set the default size of the Vehicle2 object to 800x600 pixels
     }
 
@@ -193,287 +237,130 @@ public class Vehicle2 extends JPanel implements ActionListener {
      * creating game objects, and preparing the game world for execution.
      */
     public void init() {
+        if (runner != null) {
+            runner.stop();
+            runner = null;
+        }
         // Retrieve the current level parameters
         gp = maps.get(getCurrentLevel()).lp;
 
-        // Initialize variables for positioning and dimensions
-        int partIndex;
-        int wheelOffset = 43;
-        int corpusOffset = 83;
-        int ropeSegmentOffset = 40;
-        int axisOffset;
-        double axisPosition = 0.0;
-        double corpusPosition = 0.0;
-
-        // Get the dimensions of the screen
-        screenWidth = this.getParent().getSize().width;
-        screenHeight = this.getParent().getSize().height;
-
-        // Create screen buffer and graphics context
-        screenBuffer = this.createImage(this.screenWidth, this.screenHeight);
-        graphics = this.screenBuffer.getGraphics();
-
-        // Initialize game objects
-        worldParameters = new WorldParameters();
-        pVehicle = new PlayerVehicle(wheelOffset, corpusOffset);
-        tracker = new MediaTracker(this);
-
-        // Load tile image
-        tileImg = loadImage("Bild");
-        tracker.addImage(this.tileImg, 0);
-        tracker.checkID(0, true);
-
-        // Load background image
-        imgBG = loadImage("Bild_c");
-        tracker.addImage(this.tileImg, 1);
-        tracker.checkID(1, true);
-
-        processAndMapPixels();
-
-        // Define color values
-        Color greenColor = new Color(0, 150, 0);
-        Color orangeColor = new Color(255, 200, 50);
-        Color redColor = new Color(255, 0, 0);
-
-        // Create vehicle parts and connectors
-        for (axisOffset = 0; axisOffset < 2; axisOffset++) {
-            double xPartOffset = axisPosition + (axisOffset * 80);
-            for (partIndex = 0; partIndex < pVehicle.maxRopeSegments; partIndex++) {
-                double angleIncrement = Math.PI * (partIndex / 5.0);
-                this.pVehicle.partList[this.pVehicle.bodyPart] =
-                        new Connector(xPartOffset + ropeSegmentOffset * Math.cos(angleIncrement),
-                                corpusPosition + ropeSegmentOffset * Math.sin(angleIncrement),
-                                this.pVehicle.mWheels * this.worldParameters.scaleM, greenColor);
-                ++this.pVehicle.bodyPart;
-            }
-            processRopeSegs(axisOffset, orangeColor);
-            this.pVehicle.partList[this.pVehicle.bodyPart] =
-                    new Connector(xPartOffset, corpusPosition, this.worldParameters.scaleM * this.pVehicle.mAxis,
-                            greenColor);
-            ++this.pVehicle.bodyPart;
-            partIndex = 0;
-            while (partIndex < pVehicle.maxRopeSegments) {
-                this.pVehicle.vParts[this.pVehicle.ropePart] =
-                        new VehiclePart(partIndex + 11 * axisOffset, this.pVehicle.bodyPart - 1,
-                                this.worldParameters.scaleF * this.pVehicle.fWheels, orangeColor);
-                ++this.pVehicle.ropePart;
-                ++partIndex;
-            }
-
+        // Get the dimensions of the window, and of the screen the game is drawn at
+        windowWidth = this.getParent().getSize().width;
+        windowHeight = this.getParent().getSize().height;
+        if (scaler != null) {
+            scaler.flush();
+            scaler = null;
+        }
+        if (internalWidth > 0) {
+            screenWidth = internalWidth;
+            screenHeight = internalHeight > 0 ? internalHeight : internalWidth * windowHeight / windowWidth;
+        } else {
+            screenWidth = windowWidth;
+            screenHeight = windowHeight;
         }
-        this.pVehicle.partList[this.pVehicle.bodyPart] =
-                new Connector(axisPosition + 40.0, corpusPosition, this.worldParameters.scaleM * this.pVehicle.mCorpus,
-                        greenColor);
-        ++this.pVehicle.bodyPart;
-        this.pVehicle.pCounter = this.pVehicle.bodyPart - 1;
-        this.pVehicle.vParts[this.pVehicle.ropePart] =
-                new VehiclePart(10, this.pVehicle.bodyPart - 1,
-                        this.worldParameters.scaleF * this.pVehicle.fCorpus, redColor);
-        ++this.pVehicle.ropePart;
-        this.pVehicle.vParts[this.pVehicle.ropePart] =
-                new VehiclePart(21, this.pVehicle.bodyPart - 1,
-                        this.worldParameters.scaleF * this.pVehicle.fCorpus, redColor);
-        ++this.pVehicle.ropePart;
-        this.pVehicle.vParts[this.pVehicle.ropePart] =
-                new VehiclePart(10, 21, this.worldParameters.scaleF * this.pVehicle.fCorpus, redColor);
-        this.pVehicle.ropeSegments[0] = this.pVehicle.bodyPart;
-        this.pVehicle.ropeAnchor[0] = ++this.pVehicle.ropePart;
-
-        // Adjust positions and scales
-        partIndex = 0;
-        while (partIndex < this.pVehicle.maxRopeSegments) {
-            processPart(partIndex, greenColor);
-            this.pVehicle.vParts[this.pVehicle.ropePart] = partIndex == 0 ?
-                    new VehiclePart(22, this.pVehicle.ropeSegments[0], this.pVehicle.ropeMin,
-                            new Color(0, 80, 185)) :
-                    new VehiclePart(this.pVehicle.ropeSegments[0] + partIndex - 1, this.pVehicle.ropeSegments[0] + partIndex,
-                            this.pVehicle.ropeMin, new Color(0, 80, 185));
 
-            this.pVehicle.vParts[this.pVehicle.ropePart].sag = this.worldParameters.scaleSize *
-                    gp.getInt("l0Rope");
-            this.pVehicle.vParts[this.pVehicle.ropePart].partActive = false;
-            ++this.pVehicle.ropePart;
-            ++partIndex;
+        // Create screen buffer and graphics context, or the canvas that replaces them
+        if (activeRender) {
+            if (canvas == null) {
+                canvas = new GameCanvas();
+                this.setLayout(new BorderLayout());
+                this.add(canvas, BorderLayout.CENTER);
+                this.revalidate();
+            }
+        } else {
+            screenBuffer = this.createImage(this.windowWidth, this.windowHeight);
+            graphics = this.screenBuffer.getGraphics();
         }
-        this.pVehicle.ropeSegments[1] = this.pVehicle.bodyPart;
-        this.pVehicle.ropeAnchor[1] = this.pVehicle.ropePart;
-        partIndex = 0;
-        while (partIndex < this.pVehicle.maxRopeSegments) {
-            processPart(partIndex, greenColor);
-            this.pVehicle.vParts[this.pVehicle.ropePart] = partIndex == 0 ?
-                    new VehiclePart(22, this.pVehicle.ropeSegments[1],
-                            this.pVehicle.ropeMin, new Color(70, 170, 255)) :
-                    new VehiclePart(this.pVehicle.ropeSegments[1] + partIndex - 1, this.pVehicle.ropeSegments[1] + partIndex,
-                            this.pVehicle.ropeMin, new Color(70, 170, 255));
-            this.pVehicle.vParts[this.pVehicle.ropePart].sag = this.worldParameters.scaleSize *
-                    gp.getInt("l0Rope");
-            this.pVehicle.vParts[this.pVehicle.ropePart].partActive = false;
-            ++this.pVehicle.ropePart;
-            ++partIndex;
+        if (screenWidth != windowWidth || screenHeight != windowHeight) {
+            scaler = new FrameScaler(canvas != null ? canvas : this, screenWidth, screenHeight, scaleInterpolation);
         }
-        partIndex = 0;
-        while (partIndex < this.pVehicle.bodyPart) {
-            this.pVehicle.partList[partIndex].x *= this.worldParameters.scaleSize;
-            this.pVehicle.partList[partIndex].y *= this.worldParameters.scaleSize;
-            this.pVehicle.partList[partIndex].x += gp.getInt("StartX");
-            this.pVehicle.partList[partIndex].y += gp.getInt("StartY");
-            ++partIndex;
+
+        // Initialize game objects, unless they were loaded while the previous level was played
+        LevelMap map = maps.get(getCurrentLevel());
+        LevelPreloader.Level level = preloader.take(map);
+        if (level == null) {
+            try {
+                level = LevelPreloader.load(map);
+            } catch (IOException e) {
+                V2RApp.logger.error("Could not load level {}: {}", map.getFilename(), e.getMessage());
+                this.setRunState(false);
+                fireEvent("exit_loop");
+                return;
+            }
         }
-        partIndex = 0;
-        while (partIndex < this.pVehicle.ropePart) {
-            this.pVehicle.vParts[partIndex].sag *= this.worldParameters.scaleSize;
-            ++partIndex;
+        sim = level.sim();
+        // Zone events come from the simulation thread; show them on this one, unless the level has changed
+        final Simulation levelSim = sim;
+        levelSim.addEventListener(event -> SwingUtilities.invokeLater(() -> {
+            if (sim == levelSim) {
+                showZone(event);
+            }
+        }));
+        zoneMessage = null;
+        PhysicsState body = sim.getVehicle().getBody();
+        synchronized (input) {
+            input.left = false;
+            input.right = false;
+            input.clearEvents();
         }
 
+        // Load background image
+        imgBG = level.background() != null ? level.background() : loadImage("Bild_c");
+        painter = null;
+
         // Print map information
         if (V2RApp.debug)
-            V2RApp.logger.info("Map: {}, nf={}, np={}", gp.paramMap.get("Bild_c"), this.pVehicle.ropePart, this.pVehicle.bodyPart);
+            V2RApp.logger.info("Map: {}, nf={}, np={}", gp.paramMap.get("Bild_c"), body.springCount, body.nodeCount);
 
         // Set the initial position of the game world
-        this.worldParameters.wpX = this.pVehicle.partList[this.pVehicle.pCounter].x - ((double) this.screenWidth / 2);
-        this.worldParameters.wpY = this.pVehicle.partList[this.pVehicle.pCounter].y - ((double) this.screenHeight / 2);
+        double cameraX = body.x[sim.getVehicle().getCorpusNode()] - ((double) this.screenWidth / 2);
+        double cameraY = body.y[sim.getVehicle().getCorpusNode()] - ((double) this.screenHeight / 2);
 
         // Add the control listeners once. This could probably be done better.
         if (graphicsReady == 0) {
-            this.addMouseListener(new ExMouseAdapter());
-            this.addMouseMotionListener(new MouseControls());
+            // With active rendering the canvas covers the panel and gets the mouse events
+            Component mouseTarget = canvas != null ? canvas : this;
+            mouseTarget.addMouseListener(new ExMouseAdapter());
+            mouseTarget.addMouseMotionListener(new MouseControls());
             this.getRootPane().getParent().addKeyListener(new GameControls());
         }
         this.graphicsReady = 1; // Set graphics readiness flag
 
-        // Start the timer and set the run state to true
-        levelStartTime = System.currentTimeMillis();
+        // Start the simulation thread and set the run state to true
+        runner = new SimulationRunner(sim, input, cameraX, cameraY, screenWidth, screenHeight, MAX_STEPS_PER_FRAME);
         this.setRunState(true);
-    }
-
-    private void processRopeSegs(int axisOffset, Color orangeColor) {
-        int partIndex = 0;
-        while (partIndex < pVehicle.maxRopeSegments) {
-            this.pVehicle.vParts[this.pVehicle.ropePart] =
-                    new VehiclePart(partIndex + 11 * axisOffset, (partIndex + 1) % pVehicle.maxRopeSegments + 11 * axisOffset,
-                            this.worldParameters.scaleF * this.pVehicle.fWheels, orangeColor);
-            ++this.pVehicle.ropePart;
-            this.pVehicle.vParts[this.pVehicle.ropePart] =
-                    new VehiclePart(partIndex + 11 * axisOffset, (partIndex + 3) % pVehicle.maxRopeSegments + 11 * axisOffset,
-                            this.worldParameters.scaleF * this.pVehicle.fWheels, orangeColor);
-            ++this.pVehicle.ropePart;
-            ++partIndex;
-        }
+        runner.start();
     }
 
     /**
-     * Processes a vehicle part and updates the part list with a new Connector.
+     * Shows a message for a checkpoint, hazard or trigger zone the vehicle entered. Goal zones already show the
+     * goal countdown.
      *
-     * @param coOrd Starting co-ordinate.
-     * @param color The color of the vehicle part.
-     */
-    private void processPart(int coOrd, Color color) {
-        this.pVehicle.partList[this.pVehicle.bodyPart] =
-                new Connector(coOrd, coOrd, this.pVehicle.mRope * this.worldParameters.scaleM, color);
-        if (coOrd == this.pVehicle.maxRopeSegments - 1) {
-            this.pVehicle.partList[this.pVehicle.bodyPart].angle = this.worldParameters.scaleM * this.pVehicle.mHook;
-        }
-        this.pVehicle.partList[this.pVehicle.bodyPart].gToggle = false;
-        ++this.pVehicle.bodyPart;
-    }
-
-    /**
-     * Processes and maps pixels from the tile image to characters in the level map.
-     * Uses parallel processing for improved performance.
-     * <p>
-     * <b>Implementation details:</b><br>
-     * This function grabs the pixels from the tile image using PixelGrabber,
-     * processes each pixel in parallel, and maps it to a character using the mapPixelToChar function.
-     * The resulting characters are then stored in the level map.
-     * <i>Note: Ensure that the mapPixelToChar function is appropriately defined for accurate mapping.</i>
-     * <br><b>Example usage:<br></b>
-     * {@code processAndMapPixels(); // This function is typically called when initializing the level map.}
-     * <p><i>Caution: Since parallel processing is used, ensure that operations on shared resources are thread-safe.</i></p>
+     * @param event The {@link ZoneEvent} fired by the simulation.
      */
-    public void processAndMapPixels() {
-        int levelWidth = this.worldParameters.levelWidth;
-        int levelHeight = this.worldParameters.levelHeight;
-        int[] nArray = new int[levelWidth * levelHeight];
-
-        PixelGrabber pixelGrabber = new PixelGrabber(this.tileImg, 0, 0,
-                levelWidth, levelHeight, nArray, 0, levelWidth);
-
-        try {
-            pixelGrabber.grabPixels();
-        } catch (InterruptedException e) {
-            V2RApp.logger.error("Interrupted waiting for pixels!");
-            Thread.currentThread().interrupt();
+    private void showZone(TriggerEvent event) {
+        if (!(event instanceof ZoneEvent zoneEvent) || !zoneEvent.isEntered()) {
             return;
         }
-
-        // Wait for all images to be loaded
-        try {
-            tracker.waitForAll();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        // Use parallel stream for processing the pixels
-        IntStream.range(0, nArray.length).parallel().forEach(n -> {
-            int pixel = nArray[n];
-            int red = (pixel >> 16) & 0xFF;
-            int green = (pixel >> 8) & 0xFF;
-            int blue = pixel & 0xFF;
-
-            // Map pixel values to characters
-            char mappedChar = mapPixelToChar(red, green, blue);
-
-            // Since we are using parallel processing, ensure that the operation on the shared resource is thread-safe
-            synchronized (this.worldParameters.levelMap) {
-                this.worldParameters.levelMap[n % levelWidth][n / levelWidth] = mappedChar;
-            }
-        });
+        Zone zone = zoneEvent.getZone();
+        zoneMessage = switch (zone.type()) {
+            case GOAL -> null;
+            case CHECKPOINT -> "Checkpoint: " + zone.name();
+            case HAZARD -> "Danger: " + zone.name();
+            case TRIGGER -> zone.name();
+        };
+        zoneMessageUntil = runner.getSnapshot().elapsedMillis + ZONE_MESSAGE_MILLIS;
+        if (V2RApp.debug) V2RApp.logger.debug("Entered zone {}", zone);
     }
 
     /**
-     * <p>Maps RGB values of a pixel to a corresponding character based on predefined color constants.</p>
-     * <br><p>
-     * <b>Implementation details:</b><br>
-     * This function combines the RGB values of a pixel into a single integer representation.
-     * It then checks this integer value against predefined color constants to determine the corresponding character.
-     * </p><br>
-     * <p>Returns:
-     * <ul>
-     *     <li>'l' for air color</li>
-     *     <li>'w' for water color</li>
-     *     <li>'e' for ground color</li>
-     *     <li>'f' for color 'a'</li>
-     *     <li>'E' for color 'b'</li>
-     *     <li>'F' for any other color</li>
-     * </ul>
-     * </p>
-     * <p>
-     *     Example usage:<br>
-     *     {@code char mappedChar = mapPixelToChar(255, 0, 0); // Assuming red color}
-     *     <br>Result: 'F' since red is not one of the predefined colors
-     * </p>
-     * <p>
-     * <i>Note: Ensure that the color constants in GameConstants are appropriately defined for accurate mapping.</i>
-     *
-     * @param red   The red component of the pixel color (0-255).
-     * @param green The green component of the pixel color (0-255).
-     * @param blue  The blue component of the pixel color (0-255).
-     * @return The character mapped based on the predefined color constants.
+     * Starts loading the level after the current one in the background, so that {@link #init()} finds it ready
+     * when the current level has been won.
      */
-    private char mapPixelToChar(int red, int green, int blue) {
-        int pixelValue = (red << 16) | (green << 8) | blue;
-        if (pixelValue == GameConstants.AIR_COLOR) {
-            return 'l';
-        } else if (pixelValue == GameConstants.WATER_COLOR) {
-            return 'w';
-        } else if (pixelValue == GameConstants.GROUND_COLOR) {
-            return 'e';
-        } else if (pixelValue == GameConstants.ELEMENT_A) {
-            return 'f';
-        } else if (pixelValue == GameConstants.ELEMENT_B) {
-            return 'E';
+    public void preloadNextLevel() {
+        if (getCurrentLevel() + 1 < maps.size()) {
+            preloader.preload(maps.get(getCurrentLevel() + 1));
         }
-        return 'F';
     }
 
     /**
@@ -481,291 +368,82 @@ public class Vehicle2 extends JPanel implements ActionListener {
      */
     @Override
     public void paintComponent(Graphics graphics) {
-        if (this.graphicsReady > 0) {
+        if (this.graphicsReady > 0 && canvas == null) {
             graphics.drawImage(this.screenBuffer, 0, 0, this); // Draw game image
         }
     }
 
     /**
      * Function attached to the timer to run the game. Timer acts as a loop.
+     * <p>
+     * The physics run on the {@link SimulationRunner} thread; each call draws a single frame of the latest
+     * snapshot, interpolated to the time one step ago, so that motion stays smooth whatever the frame rate.
+     * </p>
      */
     public void run() {
-        final double SMOOTHING_FACTOR = 0.99;
-        final double ADJUSTMENT_FACTOR = 0.01;
-        final double VELOCITY_MULTIPLIER = 3.0;
-        final int PARTS_COUNT = 20;
-        final double ENGINE_FORCE = this.pVehicle.fEngine;
-
-        // Main loop
-        this.worldParameters.x = this.worldParameters.wpX;
-        this.worldParameters.y = this.worldParameters.wpY;
-        double d4 = 0.0;
-        double d5 = 0.0;
-        int n = 0;
-        while (n < PARTS_COUNT) {
-            d4 += this.pVehicle.partList[n].dx;
-            d5 += this.pVehicle.partList[n].dy;
-            ++n;
-        }
-        Connector c = this.pVehicle.partList[this.pVehicle.pCounter];
-        d4 /= 20.0;
-        d5 /= 20.0;
-        this.worldParameters.wpX = SMOOTHING_FACTOR * this.worldParameters.x + ADJUSTMENT_FACTOR *
-                (c.x + VELOCITY_MULTIPLIER * d4 - ((double) this.screenWidth / 2));
-        this.worldParameters.wpY = SMOOTHING_FACTOR * this.worldParameters.y + ADJUSTMENT_FACTOR *
-                (c.y + VELOCITY_MULTIPLIER * d5 - ((double) this.screenHeight / 2));
-        this.worldParameters.viewportX = (int) this.worldParameters.wpX;
-        this.worldParameters.viewportY = (int) this.worldParameters.wpY;
-        if (this.worldParameters.viewportX < 0) {
-            this.worldParameters.viewportX = 0;
-        } else if (this.worldParameters.viewportX > this.worldParameters.levelWidth - this.screenWidth) {
-            this.worldParameters.viewportX = this.worldParameters.levelWidth - this.screenWidth;
-        }
-        if (this.worldParameters.viewportY < 0) {
-            this.worldParameters.viewportY = 0;
-        } else if (this.worldParameters.viewportY > this.worldParameters.levelHeight - this.screenHeight) {
-            this.worldParameters.viewportY = this.worldParameters.levelHeight - this.screenHeight;
-        }
-
-        // Draw Background
-        this.graphics.drawImage(
-                this.imgBG, 0, 0, this.screenWidth, this.screenHeight,
-                this.worldParameters.viewportX, this.worldParameters.viewportY,
-                this.worldParameters.viewportX + this.screenWidth,
-                this.worldParameters.viewportY + this.screenHeight, this);
-        this.pVehicle.drawVehicle();
-        this.graphics.setColor(Color.black);
-
-        this.graphics.drawLine(
-                (int) c.x - this.worldParameters.viewportX,
-                (int) (c.y) - this.worldParameters.viewportY,
-                (int) (c.x - this.worldParameters.viewportX + 10.0 * Math.cos(this.pVehicle.turretAngle)),
-                (int) (c.y - this.worldParameters.viewportY + 10.0 * Math.sin(this.pVehicle.turretAngle)));
-
-        // Handle hooks and rope
-        if (this.worldParameters.fireHook && this.pVehicle.activeRope[this.pVehicle.ropeSlot]) {
-            n = 0;
-            while (n < this.pVehicle.maxRopeSegments) {
-                this.pVehicle.partList[this.pVehicle.ropeSegments[this.pVehicle.ropeSlot] + n].gToggle = false;
-                this.pVehicle.vParts[this.pVehicle.ropeAnchor[this.pVehicle.ropeSlot] + n].partActive = false;
-                ++n;
-            }
-            this.pVehicle.activeRope[this.pVehicle.ropeSlot] = false;
-            this.worldParameters.fireHook = false;
-        }
-        if (this.pVehicle.activeRope[this.pVehicle.ropeSlot] && this.worldParameters.windRope) {
-            n = this.pVehicle.ropeAnchor[this.pVehicle.ropeSlot];
-            while (n < this.pVehicle.ropeAnchor[this.pVehicle.ropeSlot] + this.pVehicle.maxRopeSegments) {
-                if (this.pVehicle.vParts[n].rLength < this.pVehicle.ropeMax) {
-                    this.pVehicle.vParts[n].rLength *= 1.1;
-                    ++n;
-                } else {
-                    break;
-                }
-            }
-            this.worldParameters.windRope = false;
-        }
-        if (this.pVehicle.activeRope[this.pVehicle.ropeSlot] && this.worldParameters.unwindRope) {
-            int ropeSlot = this.pVehicle.ropeSlot;
-            int startAnchor = this.pVehicle.ropeAnchor[ropeSlot];
-            int endAnchor = startAnchor + this.pVehicle.maxRopeSegments;
-            for (int i = startAnchor; i < endAnchor; i++) {
-                if (this.pVehicle.vParts[i].rLength > this.pVehicle.ropeMin) {
-                    this.pVehicle.vParts[i].rLength *= 0.9;
-                }
-            }
-            this.worldParameters.unwindRope = false;
-        }
-        if (this.worldParameters.fireHook && !this.pVehicle.activeRope[this.pVehicle.ropeSlot]) {
-            this.pVehicle.inactiveRope[this.pVehicle.ropeSlot] = false;
-            this.pVehicle.activeRope[this.pVehicle.ropeSlot] = true;
-            this.worldParameters.fireHook = false;
-            n = 0;
-            while (n < this.pVehicle.maxRopeSegments) {
-                this.pVehicle.partList[this.pVehicle.ropeSegments[this.pVehicle.ropeSlot] + n].gToggle = true;
-                this.pVehicle.vParts[this.pVehicle.ropeAnchor[this.pVehicle.ropeSlot] + n].partActive = true;
-                this.pVehicle.partList[this.pVehicle.ropeSegments[this.pVehicle.ropeSlot] + n].x =
-                        c.x + ((1 + n) * 2) *
-                                Math.cos(this.pVehicle.turretAngle);
-                this.pVehicle.partList[this.pVehicle.ropeSegments[this.pVehicle.ropeSlot] + n].y =
-                        c.y + ((1 + n) * 2) *
-                                Math.sin(this.pVehicle.turretAngle);
-                this.pVehicle.vParts[this.pVehicle.ropeAnchor[this.pVehicle.ropeSlot] + n].rLength =
-                        this.pVehicle.ropeMin;
-                ++n;
-            }
-            this.pVehicle.partList[this.pVehicle.ropeSegments[this.pVehicle.ropeSlot] +
-                    this.pVehicle.maxRopeSegments - 1].dy = this.worldParameters.scaleSize *
-                    this.pVehicle.v0Rope * Math.sin(this.pVehicle.turretAngle);
-            this.pVehicle.partList[this.pVehicle.ropeSegments[this.pVehicle.ropeSlot] +
-                    this.pVehicle.maxRopeSegments - 1].dx = this.worldParameters.scaleSize *
-                    this.pVehicle.v0Rope * Math.cos(this.pVehicle.turretAngle);
-        }
-
-        // Process movement
-        if (this.worldParameters.leftPressed || this.worldParameters.rightPressed) {
-            int n2 = this.worldParameters.leftPressed ? 1 : -1;
-            int n3 = 0;
-            while (n3 < 2) {
-                n = 0;
-                while (n < pVehicle.maxRopeSegments) {
-                    int n4 = n + 11 * n3;
-                    this.pVehicle.partList[n4].dy +=
-                            (this.pVehicle.partList[pVehicle.maxRopeSegments + 11 * n3].x -
-                                    this.pVehicle.partList[n4].x) * ENGINE_FORCE * n2;
-                    this.pVehicle.partList[n4].dx +=
-                            (this.pVehicle.partList[n4].y - this.pVehicle.partList[pVehicle.maxRopeSegments +
-                                    11 * n3].y) * ENGINE_FORCE * n2;
-                    ++n;
-                }
-                ++n3;
-            }
-        }
-        n = 0;
-        while (n < this.pVehicle.ropePart) {
-            if (this.pVehicle.vParts[n].partActive) {
-                double d6 = this.pVehicle.partList[this.pVehicle.vParts[n].x].x -
-                        this.pVehicle.partList[this.pVehicle.vParts[n].y].x;
-                double d7 = this.pVehicle.partList[this.pVehicle.vParts[n].x].y -
-                        this.pVehicle.partList[this.pVehicle.vParts[n].y].y;
-                double d8 = Math.sqrt(d6 * d6 + d7 * d7);
-                double d9 = this.pVehicle.vParts[n].rLength * (d8 - this.pVehicle.vParts[n].sag);
-                double d10 = d9 / this.pVehicle.partList[this.pVehicle.vParts[n].x].angle;
-                d6 /= d8;
-                d7 /= d8;
-                this.pVehicle.partList[this.pVehicle.vParts[n].x].dx -= this.worldParameters.dt * d10 * (d6);
-                this.pVehicle.partList[this.pVehicle.vParts[n].x].dy -= this.worldParameters.dt * d10 * (d7);
-                d10 = d9 / this.pVehicle.partList[this.pVehicle.vParts[n].y].angle;
-                this.pVehicle.partList[this.pVehicle.vParts[n].y].dx += this.worldParameters.dt * d10 * d6;
-                this.pVehicle.partList[this.pVehicle.vParts[n].y].dy += this.worldParameters.dt * d10 * d7;
-            }
-            ++n;
-        }
-        n = 0;
-        while (n < this.pVehicle.bodyPart) {
-            if (this.pVehicle.partList[n].gToggle) {
-                char c2;
-                if (this.worldParameters.checkPosition((int) this.pVehicle.partList[n].x,
-                        (int) this.pVehicle.partList[n].y) == 'w') {
-                    this.pVehicle.partList[n].dy += (0.5 - this.pVehicle.buoyancy) *
-                            this.worldParameters.dt * this.worldParameters.gravity;
-                    this.pVehicle.partList[n].dx *= this.worldParameters.frictionW;
-                    this.pVehicle.partList[n].dy *= this.worldParameters.frictionW;
-                } else {
-                    this.pVehicle.partList[n].dy += this.worldParameters.dt * this.worldParameters.gravity;
-                    this.pVehicle.partList[n].dx *= this.worldParameters.friction;
-                    this.pVehicle.partList[n].dy *= this.worldParameters.friction;
-                }
-                if (!(n == this.pVehicle.ropeSegments[0] + this.pVehicle.maxRopeSegments - 1 &&
-                        this.pVehicle.inactiveRope[0] || n == this.pVehicle.ropeSegments[1] +
-                        this.pVehicle.maxRopeSegments - 1 && this.pVehicle.inactiveRope[1])) {
-                    lxt = this.pVehicle.partList[n].x;
-                    lyt = this.pVehicle.partList[n].y;
-                    this.pVehicle.partList[n].x += this.worldParameters.dt * this.pVehicle.partList[n].dx;
-                    this.pVehicle.partList[n].y += this.worldParameters.dt * this.pVehicle.partList[n].dy;
-                }
-                if ((c2 = this.worldParameters.checkPosition((int) this.pVehicle.partList[n].x,
-                        (int) this.pVehicle.partList[n].y)) != 'l' && c2 != 'w' ||
-                        this.pVehicle.partList[n].x < 0.0 ||
-                        this.pVehicle.partList[n].x > (this.worldParameters.levelWidth - 1) ||
-                        this.pVehicle.partList[n].y < 0.0 ||
-                        this.pVehicle.partList[n].y > (this.worldParameters.levelHeight - 1)) {
-                    if (n == this.pVehicle.ropeSegments[0] + this.pVehicle.maxRopeSegments - 1) {
-                        this.pVehicle.inactiveRope[0] = true;
-                    } else if (n == this.pVehicle.ropeSegments[1] + this.pVehicle.maxRopeSegments - 1) {
-                        this.pVehicle.inactiveRope[1] = true;
-                    } else {
-                        this.pVehicle.partList[n].x = lxt;
-                        this.pVehicle.partList[n].y = lyt;
-                        this.pVehicle.partList[n].dx = 0.0;
-                        this.pVehicle.partList[n].dy = 0.0;
-                    }
-                }
-            }
-            ++n;
-        }
-        graphics.setColor(Color.GRAY);
-        graphics.fillRect(10, 10, 85, 18);
-        if (this.mouseY < 33 && this.mouseX < 100) {
-            graphics.setColor(new Color(0, 0, 255));
+        VehicleSnapshot snapshot = runner.getSnapshot();
+        if (snapshot.finished) {
+            finishLevel(snapshot);
+        }
+        // Load the terrain a screen ahead in every direction, where the camera may go next
+        sim.getTerrain().prefetch(viewportX - screenWidth / 2, viewportY - screenHeight / 2,
+                2 * screenWidth, 2 * screenHeight);
+        if (canvas != null) {
+            canvas.present(scaler != null ?
+                    g -> scaler.draw(g, canvas.getWidth(), canvas.getHeight(), this::render) : this::render);
+        } else if (scaler != null) {
+            scaler.draw(this.graphics, windowWidth, windowHeight, this::render);
         } else {
-            graphics.setColor(Color.black);
+            render(this.graphics);
         }
-        graphics.drawRect(10, 10, 85, 18);
-        graphics.drawString("GitHub", 32, 24);
-
-        // Display simple timer
-        long levelTime = (System.currentTimeMillis() - levelStartTime) / 1000;
-        graphics.setColor(Color.black);
-        graphics.drawString("Time: " + levelTime, 380, 24);
-
-        ++this.gameCounter;
-        this.gameCounter %= 2;
-        if (this.gameCounter != 0) return;
-
-        boolean inside1 = isCoordinateInArea((int) pVehicle.partList[10].x, (int) pVehicle.partList[10].y);
-        boolean inside2 = isCoordinateInArea((int) pVehicle.partList[21].x, (int) pVehicle.partList[21].y);
+    }
 
-        if (inside1 && inside2 && !insideGoal) {
-            // Set the start time when the body triangle is inside the goal area
-            startTime = System.currentTimeMillis();
-            insideGoal = true;
+    /**
+     * Stops the game and stores the level time if it beats the best time recorded for this level.
+     *
+     * @param snapshot The snapshot of the step that finished the level.
+     */
+    private void finishLevel(@NotNull VehicleSnapshot snapshot) {
+        this.setRunState(false);
+        long levelTime = snapshot.elapsedMillis / 1000;
+        int storedTime = 9999;
+        try {
+            storedTime = parseInt(levelTimes.get(gp.paramMap.get("Bild")));
+        } catch (Exception e) {
+            if (V2RApp.debug) V2RApp.logger.debug("No stored time..");
         }
-        if (insideGoal) {
-            long elapsedTime = System.currentTimeMillis() - startTime;
-
-            // Check if conditions remain true for 5 seconds
-            if (!inside1 && !inside2) {
-                insideGoal = false;
-            } else {
-                int x = pVehicle.partList[21].x < pVehicle.partList[10].x ?
-                        (int) ((pVehicle.partList[10].x - pVehicle.partList[21].x) + pVehicle.partList[21].x) -
-                                1 - worldParameters.viewportX - 80 :
-                        (int) ((pVehicle.partList[21].x - pVehicle.partList[10].x) + pVehicle.partList[10].x) -
-                                1 - worldParameters.viewportX - 80;
-
-                int y = pVehicle.partList[21].y < pVehicle.partList[10].y ?
-                        (int) (pVehicle.partList[21].y - 25.0 - worldParameters.viewportY) :
-                        (int) (pVehicle.partList[10].y - 25.0 - worldParameters.viewportY);
-                graphics.setColor(new Color(255, 0, 0));
-                graphics.drawString("Stay inside the goal: " + ((DELAY - elapsedTime) / 1000), x, y);
-            }
-            if (elapsedTime >= DELAY) {
-                this.setRunState(false);
-                int storedTime = 9999;
-                try {
-                    storedTime = parseInt(levelTimes.get(gp.paramMap.get("Bild")));
-                } catch (Exception e) {
-                    if (V2RApp.debug) V2RApp.logger.debug("No stored time..");
-                }
-                if (levelTime < storedTime) {
-                    levelTimes.put(gp.paramMap.get("Bild"), String.valueOf(levelTime));
-                }
-                startTime = System.currentTimeMillis();
-            }
+        if (levelTime < storedTime) {
+            levelTimes.put(gp.paramMap.get("Bild"), String.valueOf(levelTime));
         }
     }
 
     /**
-     * Determines whether a given coordinate is within a specified rectangular area.
+     * Draws the current state of the game: background, vehicle, turret and HUD.
      *
-     * @param x The x-coordinate to check.
-     * @param y The y-coordinate to check.
-     * @return {@code true} if the coordinate (x, y) lies within the bounds of the area defined by
-     * the Goal variables defined in {@link GameParams}, {@code false} otherwise.
-     */
-    public boolean isCoordinateInArea(int x, int y) {
-        int areaX = gp.getInt("GoalX");
-        int areaY = gp.getInt("GoalY");
-        int areaWidth = gp.getInt("GoalWidth");
-        int areaHeight = gp.getInt("GoalHeight");
-
-        boolean withinXBounds = x >= areaX && x < (areaX + areaWidth);
-        boolean withinYBounds = y >= areaY && y < (areaY + areaHeight);
-        return withinXBounds && withinYBounds;
+     * @param graphics The graphics of the screen buffer, or of the back buffer with active rendering.
+     */
+    private void render(@NotNull Graphics graphics) {
+        final VehicleSnapshot snapshot = runner.getSnapshot();
+        final double alpha = snapshot.alpha(System.nanoTime() - runner.getStepNanos());
+        if (drawX.length < snapshot.nodeCount) {
+            drawX = new double[snapshot.nodeCount];
+            drawY = new double[snapshot.nodeCount];
+        }
+        snapshot.interpolate(alpha, drawX, drawY);
+        if (this.painter == null) {
+            this.painter = new ScenePainter(this.imgBG, this.screenWidth, this.screenHeight,
+                    sim.getTerrain().getWidth(), sim.getTerrain().getHeight(),
+                    this.canvas != null ? this.canvas.getGraphicsConfiguration() : null);
+        }
+        this.viewportX = painter.viewportX(snapshot.cameraX(alpha));
+        this.viewportY = painter.viewportY(snapshot.cameraY(alpha));
+
+        final Graphics2D g2 = (Graphics2D) graphics;
+        painter.draw(g2, snapshot, drawX, drawY, snapshot.turretAngle(alpha), viewportX, viewportY,
+                snapshot.elapsedMillis < zoneMessageUntil ? zoneMessage : null);
+        painter.getHud().drawLink(g2, this.mouseY < 33 && this.mouseX < 100);
     }
 
-
     @Override
     public void actionPerformed(ActionEvent e) {
         // Empty
@@ -828,6 +506,9 @@ public class Vehicle2 extends JPanel implements ActionListener {
 
     public void setRunState(boolean runState) {
         this.runState = runState;
+        if (!runState && runner != null) {
+            runner.stop();
+        }
     }
 
     /**
@@ -868,38 +549,40 @@ public class Vehicle2 extends JPanel implements ActionListener {
             this.pressedKey = keyCode;
 
             // Check different key codes and perform corresponding actions
-            if (keyCode == KeyEvent.VK_LEFT) {
-                worldParameters.leftPressed = true;
-            }
-            if (keyCode == KeyEvent.VK_RIGHT) {
-                worldParameters.rightPressed = true;
-            }
-            if (keyCode == KeyEvent.VK_D) {
-                worldParameters.fireHook = true;
-            }
-            if (keyCode == KeyEvent.VK_1) {
-                pVehicle.ropeSlot = 0;
-            }
-            if (keyCode == KeyEvent.VK_2) {
-                pVehicle.ropeSlot = 1;
-            }
-            if (keyCode == KeyEvent.VK_E) {
-                worldParameters.windRope = true;
-            }
-            if (keyCode == KeyEvent.VK_C) {
-                worldParameters.unwindRope = true;
-            }
-            if (keyCode == KeyEvent.VK_UP && pVehicle.buoyancy < 1.0) {
-                pVehicle.buoyancy += 0.15;
-            }
-            if (keyCode == KeyEvent.VK_DOWN && pVehicle.buoyancy > 0.0) {
-                pVehicle.buoyancy -= 0.15;
-            }
-            if (keyCode == KeyEvent.VK_S) {
-                pVehicle.turretAngle -= 0.1;
-            }
-            if (keyCode == KeyEvent.VK_F) {
-                pVehicle.turretAngle += 0.1;
+            synchronized (input) {
+                if (keyCode == KeyEvent.VK_LEFT) {
+                    input.left = true;
+                }
+                if (keyCode == KeyEvent.VK_RIGHT) {
+                    input.right = true;
+                }
+                if (keyCode == KeyEvent.VK_D) {
+                    input.fireHook = true;
+                }
+                if (keyCode == KeyEvent.VK_1) {
+                    input.ropeSlot = 0;
+                }
+                if (keyCode == KeyEvent.VK_2) {
+                    input.ropeSlot = 1;
+                }
+                if (keyCode == KeyEvent.VK_E) {
+                    input.windRope = true;
+                }
+                if (keyCode == KeyEvent.VK_C) {
+                    input.unwindRope = true;
+                }
+                if (keyCode == KeyEvent.VK_UP) {
+                    input.buoyancy++;
+                }
+                if (keyCode == KeyEvent.VK_DOWN) {
+                    input.buoyancy--;
+                }
+                if (keyCode == KeyEvent.VK_S) {
+                    input.turret--;
+                }
+                if (keyCode == KeyEvent.VK_F) {
+                    input.turret++;
+                }
             }
             if (keyCode == KeyEvent.VK_SHIFT) {
                 shiftPressed = true; // TODO: Make wheels sticky (pretty sure it did that)
@@ -920,11 +603,13 @@ public class Vehicle2 extends JPanel implements ActionListener {
         public void keyReleased(@NotNull KeyEvent keyEvent) {
             int keyCode = keyEvent.getKeyCode();
             this.pressedKey = keyCode;
-            if (keyCode == KeyEvent.VK_LEFT) {
-                worldParameters.leftPressed = false;
-            }
-            if (keyCode == KeyEvent.VK_RIGHT) {
-                worldParameters.rightPressed = false;
+            synchronized (input) {
+                if (keyCode == KeyEvent.VK_LEFT) {
+                    input.left = false;
+                }
+                if (keyCode == KeyEvent.VK_RIGHT) {
+                    input.right = false;
+                }
             }
             if (keyCode == KeyEvent.VK_SHIFT) {
                 shiftPressed = false;
@@ -949,8 +634,7 @@ public class Vehicle2 extends JPanel implements ActionListener {
          */
         @Override
         public void mouseDragged(@NotNull MouseEvent mouseEvent) {
-            mouseX = mouseEvent.getX();
-            mouseY = mouseEvent.getY();
+            setMouse(mouseEvent);
         }
 
         /**
@@ -960,8 +644,7 @@ public class Vehicle2 extends JPanel implements ActionListener {
          */
         @Override
         public void mouseMoved(@NotNull MouseEvent mouseEvent) {
-            mouseX = mouseEvent.getX();
-            mouseY = mouseEvent.getY();
+            setMouse(mouseEvent);
             if (mouseY < 33 && mouseX < 100) {
                 if (!cursorState) {
                     setCursor(new Cursor(Cursor.HAND_CURSOR));
@@ -974,6 +657,22 @@ public class Vehicle2 extends JPanel implements ActionListener {
         }
     }
 
+    /**
+     * Takes the mouse position of an event, in the coordinates of the screen the game is drawn at.
+     *
+     * @param mouseEvent The MouseEvent.
+     */
+    private void setMouse(@NotNull MouseEvent mouseEvent) {
+        Component source = mouseEvent.getComponent();
+        if (scaler != null && source.getWidth() > 0 && source.getHeight() > 0) {
+            mouseX = mouseEvent.getX() * screenWidth / source.getWidth();
+            mouseY = mouseEvent.getY() * screenHeight / source.getHeight();
+        } else {
+            mouseX = mouseEvent.getX();
+            mouseY = mouseEvent.getY();
+        }
+    }
+
     /**
      * Custom MouseAdapter implementation for handling mouse events in the application.
      */
@@ -992,8 +691,7 @@ public class Vehicle2 extends JPanel implements ActionListener {
          */
         @Override
         public void mousePressed(@NotNull MouseEvent mouseEvent) {
-            mouseX = mouseEvent.getX();
-            mouseY = mouseEvent.getY();
+            setMouse(mouseEvent);
             mouseState = true;
             if (mouseY < 33 && mouseX < 100) {
                 mouseState = false;
@@ -1017,237 +715,4 @@ public class Vehicle2 extends JPanel implements ActionListener {
             mouseState = false;
         }
     }
-
-    /**
-     * Manages parameters related to the world, including gravity, friction, dimensions, and user input.
-     */
-    class WorldParameters {
-        final char[][] levelMap;
-        double gravity;
-        double dt;
-        double friction;
-        double frictionW;
-        int levelWidth;
-        int levelHeight;
-        int viewportX = 0;
-        int viewportY = 0;
-        double x;
-        double y;
-        double wpX;
-        double wpY;
-        boolean leftPressed = false;
-        boolean rightPressed = false;
-        boolean fireHook = false;
-        boolean windRope = false;
-        boolean unwindRope = false;
-        double maxFrameWidth;
-        double maxFrameHeight;
-        double scaleM;
-        double scaleSize;
-        double scaleF;
-        int delay;
-
-        /**
-         * Constructs a WorldParameters object with default values based on configuration settings.
-         */
-        WorldParameters() {
-            this.maxFrameWidth = (double) screenWidth - 1;
-            this.maxFrameHeight = (double) screenHeight - 1;
-            this.levelWidth = gp.getInt(GameParams.BILD_W);
-            this.levelHeight = gp.getInt(GameParams.BILD_H);
-            this.scaleM = 0.01 * gp.getInt(GameParams.SCALE_M);
-            this.scaleF = 0.01 * gp.getInt(GameParams.SCALE_F);
-            this.scaleSize = 0.01 * gp.getInt(GameParams.SCALE_SIZE);
-            this.dt = 0.001 * gp.getInt(GameParams.DT);
-            this.delay = gp.getInt(GameParams.DELAY);
-            this.gravity = gp.getInt(GameParams.GRAVITY);
-            this.friction = 0.001 * gp.getInt(GameParams.REIBUNG);
-            this.frictionW = 0.001 * gp.getInt(GameParams.REIBUNG_W);
-            this.levelMap = new char[this.levelWidth][this.levelHeight];
-        }
-
-        /**
-         * Checks the type of terrain at a specific position on the level map.
-         *
-         * @param x The x-coordinate to check.
-         * @param y The y-coordinate to check.
-         * @return The type of terrain ('e' for out of bounds, 'g' for ground, 'w' for water, etc.).
-         */
-        public char checkPosition(int x, int y) {
-            if (x < 0 || y < 0 || x >= this.levelWidth || y >= this.levelHeight) {
-                return 'e';
-            }
-            return this.levelMap[x][y];
-        }
-    }
-
-    /**
-     * Represents the player-controlled vehicle with various attributes such as mass, forces, and parts.
-     */
-    class PlayerVehicle {
-        int pCounter; // Counter for tracking elements in the vehicle.
-        boolean[] activeRope = new boolean[2]; // Array indicating the activity state of rope segments.
-        boolean[] inactiveRope = new boolean[2]; // Array indicating the inactivity state of rope segments.
-        double turretAngle = -1.5707963267948966; // The angle of the turret.
-        double buoyancy = 1.0; // The buoyancy factor of the player vehicle.
-        double mHook;
-        double mRope;
-        double mWheels;
-        double mAxis;
-        double mCorpus;
-        double ropeMin; // Minimum length of the rope connected to the player vehicle.
-        double ropeMax; // Maximum length of the rope connected to the player vehicle.
-        double fWheels;
-        double fCorpus;
-        double fEngine; // Engine's output torque
-        double v0Rope;
-        int px;
-        int py;
-        int bodyPart = 0;
-        int ropePart = 0;
-        int ropeSlot = 0; // Current selected rope slot.
-        int[] ropeSegments = new int[2];
-        int[] ropeAnchor = new int[2];
-        int maxRopeSegments = 10; // breaks code above 10
-        VehiclePart[] vParts; // vehicle parts: 60,61,62 make the red body
-        Connector[] partList; // Array of connectors associated with the player vehicle.
-
-        /**
-         * Constructs a PlayerVehicle with specified initial values.
-         *
-         * @param parts      The initial number of parts in the player vehicle.
-         * @param connectors The initial number of connectors in the player vehicle.
-         */
-        public PlayerVehicle(int parts, int connectors) {
-            py = connectors;
-            px = parts;
-            vParts = new VehiclePart[this.py];
-            partList = new Connector[this.px];
-            mHook = 0.01 * gp.getInt("mHook");
-            mRope = 0.01 * gp.getInt("mRope");
-            mWheels = 0.01 * gp.getInt("mWheels");
-            mAxis = 0.01 * gp.getInt("mAxis");
-            mCorpus = 0.01 * gp.getInt("mCorpus");
-            ropeMin = worldParameters.scaleF * gp.getInt("FRopeMin");
-            ropeMax = worldParameters.scaleF * gp.getInt("FRopeMax");
-            fWheels = gp.getInt("FWheels");
-            fCorpus = gp.getInt("FCorpus");
-            fEngine = 0.1 * worldParameters.scaleSize * worldParameters.dt * gp.getInt("FEngine");
-            v0Rope = gp.getInt("v0Rope");
-        }
-
-        /**
-         * Draws the player vehicle by rendering its active parts and connectors.
-         */
-        public void drawVehicle() {
-            // Draw active vehicle parts
-            for (VehiclePart part : this.vParts) {
-                if (part != null && part.partActive) {
-                    part.drawPart();
-                }
-            }
-
-            // Draw connectors that are toggled on
-            for (Connector c : this.partList) {
-                if (c != null && c.gToggle) {
-                    c.drawConnector();
-                }
-            }
-        }
-    }
-
-    /**
-     * Represents a part of a vehicle with specific coordinates, length, sag, color, and activity status.
-     */
-    class VehiclePart {
-        int x;
-        int y;
-        double rLength;
-        double sag;
-        Color color;
-        boolean partActive = true;
-
-        /**
-         * Constructs a VehiclePart with specified initial values.
-         *
-         * @param x     The initial x-coordinate of the vehicle part.
-         * @param y     The initial y-coordinate of the vehicle part.
-         * @param min   The initial rest length of the vehicle part.
-         * @param color The initial color of the vehicle part.
-         */
-        public VehiclePart(int x, int y, double min, Color color) {
-            this.x = x;
-            this.y = y;
-            this.rLength = min;
-            this.color = color;
-            double d3 = pVehicle.partList[this.x].x -
-                    pVehicle.partList[this.y].x;
-            double d4 = pVehicle.partList[this.x].y -
-                    pVehicle.partList[this.y].y;
-            this.sag = Math.sqrt(d3 * d3 + d4 * d4);
-        }
-
-        /**
-         * Draws the vehicle part on the graphics context.
-         */
-        public void drawPart() {
-            graphics.setColor(this.color);
-            /*
-             Draws a line on the graphics context representing the vehicle part.
-             The line is drawn from (pVehicle.partList[x].x - worldParameters.viewportX, pVehicle.partList[x].y - worldParameters.viewportY)
-             to (pVehicle.partList[y].x - worldParameters.viewportX, pVehicle.partList[y].y - worldParameters.viewportY).
-             */
-            graphics.drawLine(
-                    (int) pVehicle.partList[this.x].x - worldParameters.viewportX,
-                    (int) pVehicle.partList[this.x].y - worldParameters.viewportY,
-                    (int) pVehicle.partList[this.y].x - worldParameters.viewportX,
-                    (int) pVehicle.partList[this.y].y - worldParameters.viewportY);
-        }
-    }
-
-    /**
-     * Represents a Connector with specified coordinates, dimensions, color, and graphical state.
-     */
-    class Connector {
-        double x;
-        double y;
-        double dx;
-        double dy;
-        double angle;
-        Color color;
-        boolean gToggle; // Shows the connector if true.
-
-        /**
-         * Constructs a Connector with specified initial values.
-         *
-         * @param x     The initial x-coordinate of the connector.
-         * @param y     The initial y-coordinate of the connector.
-         * @param angle The initial value of dimension 4 (angle).
-         * @param color The initial color of the connector.
-         */
-        public Connector(double x, double y, double angle, Color color) {
-            this.x = x;
-            this.y = y;
-            this.angle = angle;
-            this.dx = 0.0;
-            this.dy = 0.0;
-            this.color = color;
-            this.gToggle = true;
-        }
-
-        /**
-         * Draws a connector at the specified coordinates on the graphics context.
-         * The connector is represented as a filled rectangle with a color defined by this.cColor.
-         * The coordinates are adjusted based on the viewport position in the worldParameters.
-         * <p>
-         * Note: The method assumes that the necessary graphics context has been set before calling.
-         *
-         * @see WorldParameters
-         */
-        public void drawConnector() {
-            graphics.setColor(this.color);
-            graphics.fillRect((int) (this.x - 1.0 - worldParameters.viewportX),
-                    (int) (this.y - 1.0 - worldParameters.viewportY), 3, 3);
-        }
-    }
-}
\ No newline at end of file
+}
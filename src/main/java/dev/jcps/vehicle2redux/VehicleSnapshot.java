@@ -0,0 +1,215 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * The {@code VehicleSnapshot} class is the state of a level after one physics step, as far as drawing it needs, and
+ * the positions after the step before, so that a frame can be drawn at any time between the two.
+ * <p>
+ * A snapshot is made by the {@link SimulationRunner} thread and never changes afterwards, so the event dispatch
+ * thread can draw it while the next steps are being computed. The arrays that change from step to step are copies;
+ * the ones that are fixed when the vehicle is built are shared with its {@link PhysicsState}.
+ * </p>
+ *
+ * @see SimulationRunner
+ * @see VehicleRenderer
+ * @since 1.0
+ */
+public final class VehicleSnapshot {
+    /**
+     * The wall-clock time the step was due at, from {@link System#nanoTime()}.
+     */
+    final long nanos;
+    /**
+     * The wall-clock time the step before was due at.
+     */
+    final long previousNanos;
+    /**
+     * The x-coordinates of the nodes after the step.
+     */
+    final double[] x;
+    /**
+     * The y-coordinates of the nodes after the step.
+     */
+    final double[] y;
+    /**
+     * The x-coordinates of the nodes after the step before.
+     */
+    final double[] previousX;
+    /**
+     * The y-coordinates of the nodes after the step before.
+     */
+    final double[] previousY;
+    /**
+     * Which nodes are drawn after the step.
+     */
+    final boolean[] nodeActive;
+    /**
+     * Which springs are drawn after the step.
+     */
+    final boolean[] springActive;
+    /**
+     * Which nodes were drawn after the step before.
+     */
+    final boolean[] previousNodeActive;
+    /**
+     * The number of nodes, fixed when the vehicle is built.
+     */
+    final int nodeCount;
+    /**
+     * The number of springs, fixed when the vehicle is built.
+     */
+    final int springCount;
+    /**
+     * The first node of each spring, shared with the vehicle.
+     */
+    final int[] springA;
+    /**
+     * The second node of each spring, shared with the vehicle.
+     */
+    final int[] springB;
+    /**
+     * The colour of each node, shared with the vehicle.
+     */
+    final Color[] nodeColor;
+    /**
+     * The colour of each spring, shared with the vehicle.
+     */
+    final Color[] springColor;
+    /**
+     * The node the turret is drawn from.
+     */
+    final int corpusNode;
+    /**
+     * The turret angle after the step.
+     */
+    final double turretAngle;
+    /**
+     * The turret angle after the step before.
+     */
+    final double previousTurretAngle;
+    /**
+     * The x-coordinate of the camera (the top-left corner of the view) after the step.
+     */
+    final double cameraX;
+    /**
+     * The y-coordinate of the camera after the step.
+     */
+    final double cameraY;
+    /**
+     * The x-coordinate of the camera after the step before.
+     */
+    final double previousCameraX;
+    /**
+     * The y-coordinate of the camera after the step before.
+     */
+    final double previousCameraY;
+    /**
+     * The level time after the step in milliseconds.
+     */
+    final long elapsedMillis;
+    /**
+     * How long the vehicle has been inside the goal in milliseconds.
+     */
+    final long goalElapsedMillis;
+    /**
+     * Whether the vehicle is inside the goal.
+     */
+    final boolean insideGoal;
+    /**
+     * Whether the level is finished after the step.
+     */
+    final boolean finished;
+
+    /**
+     * Takes a snapshot of a simulation.
+     *
+     * @param sim      The simulation, which must not be stepped meanwhile.
+     * @param nanos    The wall-clock time the step was due at.
+     * @param cameraX  The x-coordinate of the camera.
+     * @param cameraY  The y-coordinate of the camera.
+     * @param previous The snapshot of the step before, or {@code null} for the first one.
+     */
+    VehicleSnapshot(@NotNull Simulation sim, long nanos, double cameraX, double cameraY,
+                    @Nullable VehicleSnapshot previous) {
+        PlayerVehicle vehicle = sim.getVehicle();
+        PhysicsState body = vehicle.getBody();
+        this.nanos = nanos;
+        this.nodeCount = body.nodeCount;
+        this.springCount = body.springCount;
+        this.x = Arrays.copyOf(body.x, nodeCount);
+        this.y = Arrays.copyOf(body.y, nodeCount);
+        this.nodeActive = Arrays.copyOf(body.nodeActive, nodeCount);
+        this.springActive = Arrays.copyOf(body.springActive, springCount);
+        this.springA = body.springA;
+        this.springB = body.springB;
+        this.nodeColor = body.nodeColor;
+        this.springColor = body.springColor;
+        this.corpusNode = vehicle.getCorpusNode();
+        this.turretAngle = vehicle.getTurretAngle();
+        this.cameraX = cameraX;
+        this.cameraY = cameraY;
+        this.elapsedMillis = sim.getElapsedMillis();
+        this.goalElapsedMillis = sim.getGoalElapsedMillis();
+        this.insideGoal = sim.isInsideGoal();
+        this.finished = sim.isFinished();
+
+        VehicleSnapshot before = previous != null ? previous : this;
+        this.previousNanos = previous != null ? previous.nanos : nanos;
+        this.previousX = before.x;
+        this.previousY = before.y;
+        this.previousNodeActive = before.nodeActive;
+        this.previousTurretAngle = before.turretAngle;
+        this.previousCameraX = before.cameraX;
+        this.previousCameraY = before.cameraY;
+    }
+
+    /**
+     * Returns how far a time lies between the step before and this step.
+     *
+     * @param time A wall-clock time from {@link System#nanoTime()}.
+     * @return 0 at or before the step before, 1 at or after this step.
+     */
+    double alpha(long time) {
+        if (nanos <= previousNanos) {
+            return 1.0;
+        }
+        return Math.max(0.0, Math.min(1.0, (double) (time - previousNanos) / (nanos - previousNanos)));
+    }
+
+    /**
+     * Computes the positions of the nodes between the step before and this step. A node that was not active in the
+     * step before, such as a rope that was just fired, has no position to come from and is put where it is now.
+     *
+     * @param alpha From 0 for the step before to 1 for this step.
+     * @param outX  Receives the x-coordinates; at least {@link #nodeCount} long.
+     * @param outY  Receives the y-coordinates; at least {@link #nodeCount} long.
+     */
+    void interpolate(double alpha, double @NotNull [] outX, double @NotNull [] outY) {
+        for (int n = 0; n < nodeCount; n++) {
+            if (previousNodeActive[n]) {
+                outX[n] = previousX[n] + (x[n] - previousX[n]) * alpha;
+                outY[n] = previousY[n] + (y[n] - previousY[n]) * alpha;
+            } else {
+                outX[n] = x[n];
+                outY[n] = y[n];
+            }
+        }
+    }
+
+    double turretAngle(double alpha) {
+        return previousTurretAngle + (turretAngle - previousTurretAngle) * alpha;
+    }
+
+    double cameraX(double alpha) {
+        return previousCameraX + (cameraX - previousCameraX) * alpha;
+    }
+
+    double cameraY(double alpha) {
+        return previousCameraY + (cameraY - previousCameraY) * alpha;
+    }
+}
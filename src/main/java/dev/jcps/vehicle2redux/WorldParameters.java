@@ -0,0 +1,124 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Manages parameters related to the world, including gravity, friction, dimensions and time step.
+ * The values are read once from the level's {@link LevelSettings} and converted to the units used by the physics.
+ *
+ * @since 1.0
+ */
+public class WorldParameters {
+    /**
+     * The step length (in seconds of simulated time) the friction values in the {@code .map} files are tuned for.
+     */
+    static final double REFERENCE_DT = 0.025;
+    /**
+     * The downward acceleration of every node, in pixels per second squared.
+     */
+    double gravity;
+    /**
+     * The simulated time of one step in seconds.
+     */
+    double dt;
+    /**
+     * The share of its velocity a node keeps per step in air.
+     */
+    double friction;
+    /**
+     * The share of its velocity a node keeps per step in water.
+     */
+    double frictionW;
+    /**
+     * The width of the level in pixels.
+     */
+    int levelWidth;
+    /**
+     * The height of the level in pixels.
+     */
+    int levelHeight;
+    /**
+     * The factor all masses are multiplied by.
+     */
+    double scaleM;
+    /**
+     * The factor the size of the vehicle and the rope speed are multiplied by.
+     */
+    double scaleSize;
+    /**
+     * The factor all spring stiffnesses are multiplied by.
+     */
+    double scaleF;
+    /**
+     * The real time one step lasts in milliseconds.
+     */
+    int delay;
+    /**
+     * The number of sub-steps each step is split into.
+     */
+    int substeps;
+    /**
+     * The simulated time of one sub-step in seconds.
+     */
+    double subDt;
+    /**
+     * The share of its velocity a node keeps per sub-step in air.
+     */
+    double subFriction;
+    /**
+     * The share of its velocity a node keeps per sub-step in water.
+     */
+    double subFrictionW;
+    /**
+     * How each sub-step is computed.
+     */
+    Integrator integrator;
+    /**
+     * The largest {@code k * dt^2 * (1/mA + 1/mB)} a spring may have with the symplectic integrator, or 0 to
+     * leave the springs as they are.
+     */
+    double springLimit;
+    /**
+     * Whether the vehicle collides through the distance field of the terrain.
+     */
+    boolean distanceCollision;
+    /**
+     * The share of the speed into the surface that is sent back out on a collision with the distance field.
+     */
+    double bounce;
+    /**
+     * The share of the speed along the surface that is lost on a collision with the distance field.
+     */
+    double grip;
+
+    /**
+     * Constructs a WorldParameters object with default values based on configuration settings.
+     *
+     * @param gp The level parameters.
+     */
+    public WorldParameters(@NotNull GameParams gp) {
+        LevelSettings settings = gp.getSettings();
+        this.levelWidth = settings.width;
+        this.levelHeight = settings.height;
+        this.scaleM = 0.01 * settings.scaleM;
+        this.scaleF = 0.01 * settings.scaleF;
+        this.scaleSize = 0.01 * settings.scaleSize;
+        this.dt = 0.001 * settings.dt;
+        this.delay = settings.delay;
+        this.gravity = settings.gravity;
+        this.friction = 0.001 * settings.friction;
+        this.frictionW = 0.001 * settings.frictionW;
+        this.integrator = settings.integrator;
+        this.springLimit = 0.01 * settings.springLimit;
+        this.distanceCollision = settings.distanceCollision;
+        this.bounce = 0.01 * settings.bounce;
+        this.grip = 0.01 * settings.grip;
+        // Split every step of dt into sub-steps; friction is per step, so it is spread over the sub-steps
+        this.substeps = settings.substeps;
+        this.subDt = this.dt / this.substeps;
+        // The newer integrators scale friction to the step length, so changing dt does not change the damping
+        double frictionSteps = this.integrator == Integrator.LEGACY ? this.substeps : REFERENCE_DT / this.subDt;
+        this.subFriction = Math.pow(this.friction, 1.0 / frictionSteps);
+        this.subFrictionW = Math.pow(this.frictionW, 1.0 / frictionSteps);
+    }
+}
@@ -0,0 +1,83 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * A rectangular zone of a level, declared in the {@code .map} file as
+ * {@code Zone.<name>=<type> <x> <y> <width> <height> [<from> <until>]}.
+ * <p>
+ * The optional times (in seconds since the start of the level) turn the zone into a timed gate: it only counts while
+ * the level time is from {@code from} up to, but not including, {@code until}.
+ * </p>
+ *
+ * @param name        The name of the zone, letters, digits, '_' and '-' only.
+ * @param type        What the zone does.
+ * @param x           The left edge in pixels.
+ * @param y           The top edge in pixels.
+ * @param width       The width in pixels.
+ * @param height      The height in pixels.
+ * @param fromMillis  The level time the zone starts to count at, in milliseconds.
+ * @param untilMillis The level time the zone stops counting at, in milliseconds; {@link Long#MAX_VALUE} for never.
+ * @see ZoneGrid
+ * @see ZoneEvent
+ * @since 1.0
+ */
+public record Zone(@NotNull String name, @NotNull Type type, int x, int y, int width, int height,
+                   long fromMillis, long untilMillis) {
+    /**
+     * Checks whether a point lies in the zone.
+     *
+     * @param px The x-coordinate.
+     * @param py The y-coordinate.
+     * @return {@code true} if the point is inside.
+     */
+    public boolean contains(int px, int py) {
+        return px >= x && px < x + width && py >= y && py < y + height;
+    }
+
+    /**
+     * Checks whether the zone counts at a given level time.
+     *
+     * @param millis The level time in milliseconds.
+     * @return {@code true} if the zone is active.
+     */
+    public boolean isActive(long millis) {
+        return millis >= fromMillis && millis < untilMillis;
+    }
+
+    /**
+     * What a zone does when the vehicle is in it.
+     */
+    public enum Type {
+        /**
+         * Counts as the goal, like the area given by {@code GoalX}, {@code GoalY}, {@code GoalWidth} and
+         * {@code GoalHeight}.
+         */
+        GOAL,
+        /**
+         * A checkpoint; reaching it is reported and shown, but has no effect on the game yet.
+         */
+        CHECKPOINT,
+        /**
+         * A dangerous area; the player is warned, but it does no harm yet.
+         */
+        HAZARD,
+        /**
+         * Only reports that the vehicle entered or left it.
+         */
+        TRIGGER;
+
+        /**
+         * Returns the type with the given name, ignoring case.
+         *
+         * @param name The name of the type.
+         * @return The type.
+         * @throws IllegalArgumentException If there is no type with that name.
+         */
+        static @NotNull Type fromName(@NotNull String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The ZoneEvent class is the {@link TriggerEvent} fired by a {@link Simulation} when the vehicle enters or leaves a
+ * {@link Zone}. The message is {@code zone_enter:<name>} or {@code zone_exit:<name>}.
+ *
+ * @see Simulation#addEventListener(TriggerListener)
+ * @since 1.0
+ */
+public class ZoneEvent extends TriggerEvent {
+    /**
+     * The zone entered or left.
+     */
+    private final transient Zone zone;
+    /**
+     * {@code true} if the zone was entered, {@code false} if it was left.
+     */
+    private final boolean entered;
+
+    /**
+     * Constructs a new ZoneEvent.
+     *
+     * @param source  The simulation.
+     * @param zone    The zone entered or left.
+     * @param entered {@code true} if the zone was entered, {@code false} if it was left.
+     */
+    public ZoneEvent(@NotNull Object source, @NotNull Zone zone, boolean entered) {
+        super(source, (entered ? "zone_enter:" : "zone_exit:") + zone.name());
+        this.zone = zone;
+        this.entered = entered;
+    }
+
+    /**
+     * Returns the zone entered or left.
+     *
+     * @return The zone.
+     */
+    public @NotNull Zone getZone() {
+        return zone;
+    }
+
+    /**
+     * Tells whether the zone was entered or left.
+     *
+     * @return {@code true} if the zone was entered, {@code false} if it was left.
+     */
+    public boolean isEntered() {
+        return entered;
+    }
+}
@@ -0,0 +1,155 @@
+package dev.jcps.vehicle2redux;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * The {@code ZoneGrid} class finds the zones of a level that contain a point without testing every zone.
+ * <p>
+ * The level is divided into square cells of {@value #CELL_SIZE} pixels, and each cell lists the zones that overlap
+ * it. A lookup only tests the zones of the one cell the point is in, so it costs the same whether a level has one
+ * zone or hundreds, as long as they are spread out.
+ * </p>
+ * <p>
+ * <i>Note: The grid never changes after it has been built, so it may be shared by several simulations.</i>
+ * </p>
+ *
+ * @see Zone
+ * @since 1.0
+ */
+public class ZoneGrid {
+    /**
+     * The width and height of a cell in pixels.
+     */
+    static final int CELL_SIZE = 64;
+    private static final int CELL_SHIFT = 6;
+    private static final int[] NO_ZONES = new int[0];
+    /**
+     * The zones, in the order they were given.
+     */
+    private final Zone[] zones;
+    /**
+     * The number of cells across and down the level.
+     */
+    private final int columns;
+    private final int rows;
+    /**
+     * The indices of the zones overlapping each cell, row by row.
+     */
+    private final int[][] cells;
+
+    /**
+     * Builds the grid of a level.
+     *
+     * @param zones  The zones of the level.
+     * @param width  The width of the level in pixels.
+     * @param height The height of the level in pixels.
+     */
+    public ZoneGrid(@NotNull List<Zone> zones, int width, int height) {
+        this.zones = zones.toArray(new Zone[0]);
+        this.columns = Math.max(1, (width + CELL_SIZE - 1) >> CELL_SHIFT);
+        this.rows = Math.max(1, (height + CELL_SIZE - 1) >> CELL_SHIFT);
+        this.cells = new int[columns * rows][];
+        int[] counts = new int[cells.length];
+        // Count first so that every cell gets an array of the right size
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < this.zones.length; i++) {
+                Zone zone = this.zones[i];
+                int cx0 = Math.max(0, zone.x() >> CELL_SHIFT);
+                int cy0 = Math.max(0, zone.y() >> CELL_SHIFT);
+                int cx1 = Math.min(columns - 1, (zone.x() + zone.width() - 1) >> CELL_SHIFT);
+                int cy1 = Math.min(rows - 1, (zone.y() + zone.height() - 1) >> CELL_SHIFT);
+                for (int cy = cy0; cy <= cy1; cy++) {
+                    for (int cx = cx0; cx <= cx1; cx++) {
+                        int cell = cy * columns + cx;
+                        if (pass == 0) {
+                            counts[cell]++;
+                        } else {
+                            cells[cell][--counts[cell]] = i;
+                        }
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int cell = 0; cell < cells.length; cell++) {
+                    cells[cell] = counts[cell] == 0 ? NO_ZONES : new int[counts[cell]];
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of zones.
+     *
+     * @return The number of zones.
+     */
+    public int size() {
+        return zones.length;
+    }
+
+    /**
+     * Returns a zone.
+     *
+     * @param index The index of the zone, in the order the zones were given.
+     * @return The zone.
+     */
+    public @NotNull Zone get(int index) {
+        return zones[index];
+    }
+
+    /**
+     * Returns the indices of the zones that may contain a point: those overlapping its cell.
+     *
+     * @param x The x-coordinate.
+     * @param y The y-coordinate.
+     * @return The candidate zones; do not change the array. Empty outside the level.
+     */
+    int @NotNull [] candidates(int x, int y) {
+        int cx = x >> CELL_SHIFT;
+        int cy = y >> CELL_SHIFT;
+        if (x < 0 || y < 0 || cx >= columns || cy >= rows) {
+            return NO_ZONES;
+        }
+        return cells[cy * columns + cx];
+    }
+
+    /**
+     * Checks whether a point lies in an active zone of the given type.
+     *
+     * @param x      The x-coordinate.
+     * @param y      The y-coordinate.
+     * @param type   The type of zone.
+     * @param millis The level time in milliseconds.
+     * @return {@code true} if a zone of that type active at that time contains the point.
+     */
+    public boolean contains(int x, int y, @NotNull Zone.Type type, long millis) {
+        for (int i : candidates(x, y)) {
+            if (zones[i].type() == type && zones[i].contains(x, y) && zones[i].isActive(millis)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether two points lie in the same active zone of the given type.
+     *
+     * @param x1     The x-coordinate of the first point.
+     * @param y1     The y-coordinate of the first point.
+     * @param x2     The x-coordinate of the second point.
+     * @param y2     The y-coordinate of the second point.
+     * @param type   The type of zone.
+     * @param millis The level time in milliseconds.
+     * @return {@code true} if one zone of that type active at that time contains both points.
+     */
+    public boolean containsBoth(int x1, int y1, int x2, int y2, @NotNull Zone.Type type, long millis) {
+        for (int i : candidates(x1, y1)) {
+            if (zones[i].type() == type && zones[i].contains(x1, y1) && zones[i].contains(x2, y2)
+                    && zones[i].isActive(millis)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}